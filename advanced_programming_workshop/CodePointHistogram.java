@@ -0,0 +1,231 @@
+/**
+ * Counts every character in a text, in any alphabet.  The letter counting
+ * programs (<tt>Advanced_Workshop_letterCount</tt>, <tt>LetterHistogram</tt>)
+ * only know about 'a' to 'z', so an accented letter like '&eacute;', or a
+ * Greek, Cyrillic or Chinese one, is just left out.  This counts Unicode
+ * "code points": every character, including the ones (like many emoji)
+ * that take two Java chars, a "surrogate pair".
+ * <p>
+ * Characters below <tt>DENSE_SIZE</tt> (the Latin alphabets) are counted
+ * in a plain array.  Everything else is counted in an
+ * <tt>IntLongHashMap</tt>, which doesn't make an object for each count.
+ * In front of the map is a small cache of the other characters counted
+ * most recently, so text in another alphabet mostly doesn't need to look
+ * in the map at all.
+ * <p>
+ * Text can be added a block at a time with <tt>add</tt>; a surrogate pair
+ * split between two blocks is still counted as one character.
+ * <p>
+ * Usage: <tt>java CodePointHistogram [fileName]</tt> (the file name
+ * defaults to <tt>Lord_of_the_Rings.txt</tt>) prints how many of each
+ * letter the file contains, the same way
+ * <tt>Advanced_Workshop_letterCount</tt> does: "letter a" to "letter z"
+ * first (with exactly the same counts), then every other letter that's in
+ * the file.
+ *
+ * @version 1.0, October 2026
+ */
+public class CodePointHistogram {
+  /**
+   * Characters below this are counted in an array rather than the map:
+   * Basic Latin up to the end of Latin Extended-B.
+   */
+  public static final int DENSE_SIZE = 0x0250;
+
+  // How many chars to read from a file at a time
+  private static final int BLOCK_SIZE = 65536;
+
+  private final long[] dense = new long[DENSE_SIZE];
+  private final IntLongHashMap others = new IntLongHashMap();
+
+  // The cache: each character past DENSE_SIZE has one place in it, and if
+  // the character in that place is a different one, its count is moved to
+  // the map first.  A cachedKeys entry of 0 means the place is empty.
+  private static final int CACHE_SIZE = 1024;
+  private final int[] cachedKeys = new int[CACHE_SIZE];
+  private final long[] cachedCounts = new long[CACHE_SIZE];
+
+  // A high surrogate at the end of the last block, waiting to see if the
+  // next block starts with its low surrogate; 0 if there isn't one
+  private char pendingHigh;
+
+  /**
+   * Makes an empty histogram.
+   */
+  public CodePointHistogram() {
+  } // end constructor
+
+  /**
+   * Counts the characters in chars[off] .. chars[off+len-1].  If the last
+   * one is the first half of a surrogate pair, it is held back until the
+   * next call (or <tt>finish</tt>).  A surrogate that isn't part of a pair
+   * is counted as a character of its own, as <tt>String.codePoints</tt>
+   * does.
+   *
+   * @param chars the characters
+   * @param off where to start
+   * @param len how many there are
+   */
+  public void add(char[] chars, int off, int len) {
+    int i = off;
+    int end = off + len;
+    if (pendingHigh != 0 && i < end) {
+      char high = pendingHigh;
+      pendingHigh = 0;
+      if (Character.isLowSurrogate(chars[i])) {
+        addOther(Character.toCodePoint(high, chars[i]));
+        i++;
+      }
+      else
+        addOther(high);
+    } // end if
+    long[] counts = dense;
+    while (i < end) {
+      char ch = chars[i++];
+      if (ch < DENSE_SIZE) {
+        counts[ch]++;
+        continue;
+      } // end if
+      if (Character.isHighSurrogate(ch)) {
+        if (i == end) {
+          pendingHigh = ch;
+          break;
+        } // end if
+        if (Character.isLowSurrogate(chars[i])) {
+          addOther(Character.toCodePoint(ch, chars[i++]));
+          continue;
+        } // end if
+      } // end if
+      addOther(ch);
+    } // end while
+  } // end add
+
+  // Counts a character past DENSE_SIZE
+  private void addOther(int codePoint) {
+    int place = (codePoint ^ codePoint >>> 10) & (CACHE_SIZE - 1);
+    if (cachedKeys[place] == codePoint) {
+      cachedCounts[place]++;
+      return;
+    } // end if
+    if (cachedKeys[place] != 0)
+      others.add(cachedKeys[place], cachedCounts[place]);
+    cachedKeys[place] = codePoint;
+    cachedCounts[place] = 1;
+  } // end addOther
+
+  // Moves everything in the cache into the map
+  private void emptyCache() {
+    for (int place = 0; place < CACHE_SIZE; place++) {
+      if (cachedKeys[place] != 0) {
+        others.add(cachedKeys[place], cachedCounts[place]);
+        cachedKeys[place] = 0;
+      } // end if
+    } // end for
+  } // end emptyCache
+
+  /**
+   * Counts a high surrogate still held back by <tt>add</tt>, because there
+   * won't be any more text for it to pair with.
+   */
+  public void finish() {
+    if (pendingHigh != 0) {
+      addOther(pendingHigh);
+      pendingHigh = 0;
+    } // end if
+  } // end finish
+
+  /**
+   * Counts all of the characters in a file (read with <tt>TextFile</tt>, so
+   * every line ends with a '\n').
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read.
+   *
+   * @param fileName the name of the file
+   */
+  public void addFile(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    char[] chars = new char[BLOCK_SIZE];
+    int count;
+    while ((count = in.readChars(chars, 0, chars.length)) > 0)
+      add(chars, 0, count);
+    in.close();
+    finish();
+  } // end addFile
+
+  /**
+   * @param codePoint a character
+   * @return how many times it has been counted
+   */
+  public long getCount(int codePoint) {
+    if (codePoint >= 0 && codePoint < DENSE_SIZE)
+      return dense[codePoint];
+    emptyCache();
+    return others.get(codePoint);
+  } // end getCount
+
+  /**
+   * @return all of the counts: a map from each character counted to how
+   *         many times it was counted
+   */
+  public IntLongHashMap getCounts() {
+    emptyCache();
+    IntLongHashMap counts = new IntLongHashMap(others.size() + DENSE_SIZE);
+    for (int ch = 0; ch < DENSE_SIZE; ch++) {
+      if (dense[ch] != 0)
+        counts.put(ch, dense[ch]);
+    } // end for
+    for (int ch : others.keys())
+      counts.put(ch, others.get(ch));
+    return counts;
+  } // end getCounts
+
+  /**
+   * Gives you the counts of just the letters, with upper and lower case
+   * counted together (as lower case).  A letter whose lower case is one of
+   * 'a' to 'z' but that isn't itself one of 'A' to 'Z' (like the Kelvin
+   * sign or the Turkish dotted capital I) is counted on its own, so the
+   * counts for 'a' to 'z' are the same as <tt>TextFile.isLetter</tt> gives.
+   *
+   * @return a map from each letter to its count
+   */
+  public IntLongHashMap getLetterCounts() {
+    emptyCache();
+    IntLongHashMap letters = new IntLongHashMap();
+    for (int ch = 0; ch < DENSE_SIZE; ch++) {
+      if (dense[ch] != 0)
+        addLetter(letters, ch, dense[ch]);
+    } // end for
+    for (int ch : others.keys())
+      addLetter(letters, ch, others.get(ch));
+    return letters;
+  } // end getLetterCounts
+
+  private static void addLetter(IntLongHashMap letters, int ch, long count) {
+    if (!Character.isLetter(ch))
+      return;
+    int lower = Character.toLowerCase(ch);
+    if (lower < 128 && ch >= 128)
+      lower = ch;
+    letters.add(lower, count);
+  } // end addLetter
+
+  public static void main(String[] args) {
+    String fileName = args.length > 0 ? args[0] : "Lord_of_the_Rings.txt";
+    CodePointHistogram histogram = new CodePointHistogram();
+    histogram.addFile(fileName);
+    IntLongHashMap letters = histogram.getLetterCounts();
+
+    // 'a' to 'z' first, even the ones that aren't there, like
+    // Advanced_Workshop_letterCount, and then the others
+    TextFile out = TextFile.SCREEN;
+    for (int ch = 'a'; ch <= 'z'; ch++)
+      out.println("letter " + (char) ch + ": " + letters.get(ch));
+    for (int ch : letters.keys()) {
+      if (ch > 'z' || ch < 'a')
+        out.println("letter " + new String(Character.toChars(ch)) + ": "
+          + letters.get(ch));
+    } // end for
+  } // end main
+} // end class CodePointHistogram
@@ -0,0 +1,235 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.zip.CRC32;
+
+/**
+ * Counts the letters in a file that keeps growing, like a log file, without
+ * counting the whole file again every time.  The counts (the same counts
+ * as <tt>LetterHistogram</tt> and <tt>Advanced_Workshop_letterCount</tt>)
+ * are saved in a second file, named after the first with
+ * <tt>".letters"</tt> on the end, together with how much of the file they
+ * cover.  The next time, only what has been added to the end of the file
+ * since then is counted.
+ * <p>
+ * So that a file that has been replaced or changed (rather than just added
+ * to) isn't counted wrongly, the saved counts also hold a checksum (a CRC32)
+ * of the last few KB they cover.  If those bytes aren't the same any more,
+ * or the file has got shorter, the whole file is counted again.
+ * <p>
+ * Usage: <tt>java IncrementalLetterCount [-watch] fileName</tt> <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * prints the counts like <tt>Advanced_Workshop_letterCount</tt> does.  With
+ * <tt>-watch</tt> it keeps running, and counts and prints again each time
+ * the file changes (stop it with control-C).
+ * <p>
+ * Like <tt>TextFile</tt>, none of the methods throw exceptions.  When errors
+ * occur, they print error messages and abort the program.
+ *
+ * @version 1.0, October 2026
+ */
+public class IncrementalLetterCount {
+  // How many bytes at the end of the counted part the checksum covers
+  private static final int CHECK_SIZE = 4096;
+
+  // First line of a saved counts file
+  private static final String HEADER = "letter counts 1";
+
+  private final String fileName;
+  private final String countsName;
+
+  // How far into the file the counts go, and the checksum of the
+  // CHECK_SIZE bytes (or fewer, at the start of a file) before that
+  private long counted;
+  private long checksum;
+  private long[] counts = new long[26];
+
+  /**
+   * Gets ready to count the letters in a file, picking up the counts saved
+   * last time if there are any.
+   *
+   * @param fileName the name of the file to count
+   */
+  public IncrementalLetterCount(String fileName) {
+    this.fileName = fileName;
+    countsName = fileName + ".letters";
+    load();
+  } // end constructor
+
+  /**
+   * Brings the counts up to date with the file, and saves them.  Only the
+   * bytes added to the file since the counts were last brought up to date
+   * are counted, unless the file has been changed some other way.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, or the counts
+   * can't be saved.
+   *
+   * @return true if anything was counted
+   */
+  public boolean update() {
+    long size = new File(fileName).length();
+    if (size < counted || checksum(counted) != checksum) {
+      // not just added to: start again
+      counts = new long[26];
+      counted = 0;
+    } 
+    else if (size == counted)
+      return false;
+    long[] added = LetterHistogram.count(fileName, counted, size);
+    for (int i = 0; i < 26; i++)
+      counts[i] += added[i];
+    counted = size;
+    checksum = checksum(counted);
+    save();
+    return true;
+  } // end update
+
+  /**
+   * @return the 26 counts so far: how many a's (or A's), then b's, and so on
+   */
+  public long[] getCounts() {
+    return counts.clone();
+  } // end getCounts
+
+  /**
+   * @return how many bytes of the file the counts cover
+   */
+  public long getCountedBytes() {
+    return counted;
+  } // end getCountedBytes
+
+  // The CRC32 of the CHECK_SIZE bytes before end (or all of them, if
+  // end is less than CHECK_SIZE), or -1 if they can't be read.
+  private long checksum(long end) {
+    long start = Math.max(0, end - CHECK_SIZE);
+    ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+        StandardOpenOption.READ)) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, start + buffer.position()) < 0)
+          return -1; // the file is shorter than we thought
+      } // end while
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while reading from file \"" + fileName + "\"");
+    } // end try
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, buffer.position());
+    return crc.getValue();
+  } // end checksum
+
+  // Reads the saved counts, if there are any.  Counts that are missing or
+  // damaged are just ignored, so the whole file gets counted.
+  private void load() {
+    if (!new File(countsName).exists())
+      return;
+    TextFile in = new TextFile(TextFile.INPUT, countsName);
+    try {
+      if (in.eof() || !in.readLine().equals(HEADER))
+        return;
+      long[] loaded = new long[28];
+      for (int i = 0; i < loaded.length; i++) {
+        if (in.eof())
+          return;
+        loaded[i] = Long.parseLong(in.readLine().trim());
+      } // end for
+      counted = loaded[0];
+      checksum = loaded[1];
+      System.arraycopy(loaded, 2, counts, 0, 26);
+    }
+    catch (NumberFormatException e) {
+      // damaged: leave the counts empty
+    }
+    finally {
+      in.close();
+    } // end try
+  } // end load
+
+  // Saves the counts.  They're written to a temporary file that then
+  // replaces the old one in one step, so a program stopped part way
+  // through never leaves half-written counts, or no counts at all.
+  private void save() {
+    String tempName = countsName + ".tmp";
+    TextFile out = new TextFile(TextFile.OUTPUT, tempName);
+    out.println(HEADER);
+    out.println(Long.toString(counted));
+    out.println(Long.toString(checksum));
+    for (int i = 0; i < 26; i++)
+      out.println(Long.toString(counts[i]));
+    out.close();
+    try {
+      Files.move(Paths.get(tempName), Paths.get(countsName),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (IOException e) {
+      TextFile.abort("Error: can't save letter counts in \"" + countsName
+        + "\"");
+    } // end try
+  } // end save
+
+  // Prints the counts just like Advanced_Workshop_letterCount does
+  private void print() {
+    TextFile out = TextFile.SCREEN;
+    for (int i = 0; i < 26; i++)
+      out.println("letter " + (char) ('a' + i) + ": " + counts[i]);
+  } // end print
+
+  // Updates and prints the counts every time the file changes, forever
+  private void watch() {
+    Path path = Paths.get(fileName).toAbsolutePath();
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      path.getParent().register(watcher,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+      while (true) {
+        WatchKey key = watcher.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          // (OVERFLOW means some events were lost, so ours might be one)
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW
+              || path.getFileName().equals(event.context()))
+            changed = true;
+        } // end for
+        if (changed && update()) {
+          TextFile.SCREEN.println("-- " + counted + " bytes");
+          print();
+        } // end if
+        if (!key.reset())
+          TextFile.abort("Error: can't watch the folder of \"" + fileName
+            + "\" any more");
+      } // end while
+    }
+    catch (IOException e) {
+      TextFile.abort("Error: can't watch file \"" + fileName + "\"");
+    }
+    catch (InterruptedException e) {
+      // stopped: nothing else to do
+    } // end try
+  } // end watch
+
+  public static void main(String[] args) {
+    boolean watch = args.length > 0 && args[0].equals("-watch");
+    int arg = watch ? 1 : 0;
+    if (arg != args.length - 1)
+      TextFile.abort("Usage: java IncrementalLetterCount [-watch] fileName");
+    if (!new File(args[arg]).exists())
+      TextFile.abort("Error: input file \"" + args[arg] + "\" does not exist");
+    IncrementalLetterCount letters = new IncrementalLetterCount(args[arg]);
+    letters.update();
+    letters.print();
+    if (watch)
+      letters.watch();
+  } // end main
+} // end class IncrementalLetterCount
@@ -0,0 +1,220 @@
+import java.util.Arrays;
+
+/**
+ * A map from ints to longs, for counting things that are numbered (like
+ * characters) when there are too many possible numbers for an array.  It
+ * works like a <tt>HashMap&lt;Integer, Long&gt;</tt>, but keeps the keys
+ * and values in plain int and long arrays, so adding to a count never makes
+ * a new object.  That makes it several times faster and many times smaller
+ * than a HashMap.
+ * <p>
+ * The keys are kept in an "open addressing" hash table: each key has a
+ * place in the table worked out from its value, and if that place is
+ * taken, the key goes in the next free place after it.  The table doubles
+ * in size whenever it gets half full, so keys are nearly always found in
+ * their own place or very close to it.
+ * <p>
+ * A key that isn't in the map has the value 0, so counting is just
+ * <tt>map.add(key, 1)</tt>.
+ *
+ * @version 1.0, October 2026
+ */
+public class IntLongHashMap {
+  private static final int MIN_CAPACITY = 16;
+
+  // The table.  A place is free if its key is FREE_KEY; the key FREE_KEY
+  // itself is kept separately, in hasFreeKey and freeKeyValue.
+  private static final int FREE_KEY = 0;
+  private int[] keys;
+  private long[] values;
+  private boolean hasFreeKey;
+  private long freeKeyValue;
+
+  // how many keys are in the map, and how many can be before it grows
+  private int size;
+  private int growAt;
+
+  // keys.length - 1 (the length is always a power of two), and
+  // 32 - log2(keys.length)
+  private int mask;
+  private int shift;
+
+  /**
+   * Makes an empty map.
+   */
+  public IntLongHashMap() {
+    this(MIN_CAPACITY);
+  } // end constructor
+
+  /**
+   * Makes an empty map with room for about <tt>expected</tt> keys before it
+   * has to grow.
+   *
+   * @param expected how many keys the map will probably hold
+   */
+  public IntLongHashMap(int expected) {
+    int capacity = MIN_CAPACITY;
+    while (capacity / 2 < expected && capacity < (1 << 30))
+      capacity *= 2;
+    allocate(capacity);
+  } // end constructor
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+    shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    growAt = capacity / 2;
+  } // end allocate
+
+  // Where in the table to start looking for a key.  Multiplying by a big
+  // odd number mixes all of the key's bits into the top ones, so that keys
+  // that are close together (like the letters of one alphabet) spread out,
+  // and the top bits are the place.
+  private int place(int key) {
+    return (key * 0x9E3779B9) >>> shift;
+  } // end place
+
+  /**
+   * Gets the value for a key.
+   *
+   * @param key the key to look up
+   * @return its value, or 0 if it isn't in the map
+   */
+  public long get(int key) {
+    if (key == FREE_KEY)
+      return freeKeyValue;
+    for (int i = place(key); ; i = (i + 1) & mask) {
+      int k = keys[i];
+      if (k == key)
+        return values[i];
+      if (k == FREE_KEY)
+        return 0;
+    } // end for
+  } // end get
+
+  /**
+   * Tells you whether a key is in the map (even with a value of 0).
+   *
+   * @param key the key to look for
+   * @return true if it's in the map
+   */
+  public boolean containsKey(int key) {
+    if (key == FREE_KEY)
+      return hasFreeKey;
+    for (int i = place(key); ; i = (i + 1) & mask) {
+      int k = keys[i];
+      if (k == key)
+        return true;
+      if (k == FREE_KEY)
+        return false;
+    } // end for
+  } // end containsKey
+
+  /**
+   * Sets the value for a key, adding the key to the map if it isn't there.
+   *
+   * @param key the key
+   * @param value its new value
+   */
+  public void put(int key, long value) {
+    if (key == FREE_KEY) {
+      addFreeKey();
+      freeKeyValue = value;
+    } 
+    else {
+      int i = insert(key); // (may grow the table, so before using values)
+      values[i] = value;
+    } // end if
+  } // end put
+
+  /**
+   * Adds to the value for a key, adding the key to the map (with a value
+   * of 0 to start with) if it isn't there.
+   *
+   * @param key the key
+   * @param amount how much to add to its value
+   */
+  public void add(int key, long amount) {
+    if (key == FREE_KEY) {
+      addFreeKey();
+      freeKeyValue += amount;
+    } 
+    else {
+      int i = insert(key); // (may grow the table, so before using values)
+      values[i] += amount;
+    } // end if
+  } // end add
+
+  private void addFreeKey() {
+    if (!hasFreeKey) {
+      hasFreeKey = true;
+      size++;
+    } // end if
+  } // end addFreeKey
+
+  // Returns the key's place in the table, first adding it (with the
+  // value 0) if it isn't there.  The key mustn't be FREE_KEY.
+  private int insert(int key) {
+    int i = place(key);
+    while (true) {
+      int k = keys[i];
+      if (k == key)
+        return i;
+      if (k == FREE_KEY)
+        break;
+      i = (i + 1) & mask;
+    } // end while
+    if (size >= growAt) {
+      grow();
+      i = place(key);
+      while (keys[i] != FREE_KEY)
+        i = (i + 1) & mask;
+    } // end if
+    keys[i] = key;
+    size++;
+    return i;
+  } // end insert
+
+  // Doubles the size of the table, putting each key in its new place
+  private void grow() {
+    int[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    for (int j = 0; j < oldKeys.length; j++) {
+      int key = oldKeys[j];
+      if (key == FREE_KEY)
+        continue;
+      int i = place(key);
+      while (keys[i] != FREE_KEY)
+        i = (i + 1) & mask;
+      keys[i] = key;
+      values[i] = oldValues[j];
+    } // end for
+  } // end grow
+
+  /**
+   * @return how many keys are in the map
+   */
+  public int size() {
+    return size;
+  } // end size
+
+  /**
+   * Gives you all of the keys in the map, smallest first.
+   *
+   * @return a new array of the keys
+   */
+  public int[] keys() {
+    int[] result = new int[size];
+    int n = 0;
+    if (hasFreeKey)
+      result[n++] = FREE_KEY;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY)
+        result[n++] = keys[i];
+    } // end for
+    Arrays.sort(result);
+    return result;
+  } // end keys
+} // end class IntLongHashMap
@@ -0,0 +1,387 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts how many of each letter of the alphabet a file contains, the same
+ * counts as <tt>Advanced_Workshop_letterCount</tt>, but using every core of
+ * the computer.  The file is split into ranges of bytes that are counted
+ * at the same time by the threads of the common ForkJoinPool, and their
+ * counts are added up at the end.
+ * <p>
+ * Like <tt>TextFile.isLetter</tt>, only 'A' to 'Z' and 'a' to 'z' count as
+ * letters, and upper and lower case are counted together.  The bytes are
+ * counted without decoding them into characters first.  That gives exactly
+ * the same counts as reading the file with <tt>TextFile</tt> as long as the
+ * file is in an encoding where these letters are always single bytes and
+ * no other character contains those bytes, such as UTF-8 (the usual
+ * encoding), ASCII or ISO-8859-1.
+ * <p>
+ * There are three ways of counting the bytes in each range (the
+ * "kernels").  <tt>SCALAR_KERNEL</tt> looks up each byte's letter as it
+ * goes, the way <tt>Advanced_Workshop_letterCount</tt> does.
+ * <tt>HISTOGRAM_KERNEL</tt>, the default, just counts how many times each
+ * of the 256 byte values appears, and only works out which of those are
+ * letters (adding 'A' and 'a' together) once per range, so the loop over
+ * the bytes does as little as possible.  <tt>VECTOR_KERNEL</tt> case-folds
+ * and classifies a whole vector of bytes at a time with the JDK's Vector
+ * API (see <tt>LetterVectorKernel</tt>).  The Vector API is still an
+ * incubator module, so that kernel is only there when
+ * <tt>LetterVectorKernel</tt> has been compiled and the program is run
+ * with <tt>--add-modules jdk.incubator.vector</tt>; otherwise it counts
+ * with <tt>SCALAR_KERNEL</tt> instead.
+ * <p>
+ * Usage: <tt>java LetterHistogram [-scalar | -vector | -verify]
+ * [fileName]</tt> (the file name defaults to
+ * <tt>Lord_of_the_Rings.txt</tt>).  <tt>-scalar</tt> and <tt>-vector</tt>
+ * count with those kernels; <tt>-verify</tt> counts with all of them and
+ * checks that they agree.  <tt>TextFileCheck kernels</tt> checks them
+ * against each other on lots of generated files.
+ * <p>
+ * Like <tt>TextFile</tt>, none of the methods throw exceptions.  When errors
+ * occur, they print error messages and abort the program.
+ *
+ * @version 1.1, October 2026
+ */
+public class LetterHistogram {
+  /**
+   * Constant for <tt>count</tt>: count by looking up the letter of each
+   * byte.
+   */
+  public static final int SCALAR_KERNEL = 0;
+
+  /**
+   * Constant for <tt>count</tt>: count each byte value, and work out the
+   * letters from those counts.  This is the default.
+   */
+  public static final int HISTOGRAM_KERNEL = 1;
+
+  /**
+   * Constant for <tt>count</tt>: case-fold and classify a vector of bytes
+   * at a time with the Vector API.  When the Vector API can't be used (see
+   * <tt>hasVectorKernel</tt>), this counts with <tt>SCALAR_KERNEL</tt>
+   * instead.
+   */
+  public static final int VECTOR_KERNEL = 2;
+
+  // Ranges of at most this many bytes are counted by one task without
+  // splitting them any further
+  private static final long TASK_SIZE = 16 << 20;
+
+  // How many bytes a task reads from the file at a time
+  private static final int BLOCK_SIZE = 65536;
+
+  // Each task's counts are kept in the middle of a bigger array, with
+  // PADDING unused longs (a cache line's worth) on each side, so that two
+  // tasks never write to the same cache line.  Slot 26 counts everything
+  // that isn't a letter, so that the counting loop doesn't need an if.
+  private static final int PADDING = 8;
+  private static final int NOT_A_LETTER = 26;
+  private static final int COUNTS_SIZE = PADDING + NOT_A_LETTER + 1 + PADDING;
+
+  // The histogram kernel's int counts are padded the same way (16 ints is
+  // a cache line).  A range is never bigger than TASK_SIZE, so they can't
+  // overflow.
+  private static final int INT_PADDING = 16;
+  private static final int HISTOGRAM_SIZE = INT_PADDING + 256 + INT_PADDING;
+
+  // For each byte value, the slot in a task's counts that it adds to
+  private static final int[] SLOT = new int[256];
+  static {
+    for (int b = 0; b < 256; b++) {
+      if (b >= 'a' && b <= 'z')
+        SLOT[b] = PADDING + b - 'a';
+      else if (b >= 'A' && b <= 'Z')
+        SLOT[b] = PADDING + b - 'A';
+      else
+        SLOT[b] = PADDING + NOT_A_LETTER;
+    } // end for
+  }
+
+  // A kernel that's in a class of its own: it adds the letters in
+  // bytes[off] .. bytes[off+len-1] to counts[first] (the a's) to
+  // counts[first+25] (the z's), and everything else to counts[first+26]
+  interface Kernel {
+    void countLetters(byte[] bytes, int off, int len, long[] counts,
+      int first);
+  } // end interface Kernel
+
+  // The vector kernel, or null if the jdk.incubator.vector module isn't
+  // there or LetterVectorKernel wasn't compiled.  It's loaded by name so
+  // that this class compiles and runs without the module.
+  private static final Kernel VECTOR = loadVectorKernel();
+
+  private static Kernel loadVectorKernel() {
+    if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+      return null;
+    try {
+      return (Kernel) Class.forName("LetterVectorKernel")
+        .getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    } // end try
+  } // end loadVectorKernel
+
+  // The class is never instantiated: it's just static methods
+  private LetterHistogram() {
+  } // end constructor
+
+  /**
+   * Tells you whether <tt>VECTOR_KERNEL</tt> really uses the Vector API:
+   * whether the program was run with <tt>--add-modules
+   * jdk.incubator.vector</tt> and <tt>LetterVectorKernel</tt> has been
+   * compiled.
+   *
+   * @return true if it does, false if it counts with
+   *         <tt>SCALAR_KERNEL</tt> instead
+   */
+  public static boolean hasVectorKernel() {
+    return VECTOR != null;
+  } // end hasVectorKernel
+
+  /**
+   * Counts the letters in a file, using the common ForkJoinPool.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read.
+   *
+   * @param fileName the name of the file
+   * @return 26 counts: how many a's (or A's), then b's, and so on
+   */
+  public static long[] count(String fileName) {
+    return count(fileName, ForkJoinPool.commonPool());
+  } // end count
+
+  /**
+   * Counts the letters in a file, like <tt>count(fileName)</tt>, but using
+   * the threads of the given pool.
+   *
+   * @param fileName the name of the file
+   * @param pool the pool to count in
+   * @return 26 counts: how many a's (or A's), then b's, and so on
+   */
+  public static long[] count(String fileName, ForkJoinPool pool) {
+    return count(fileName, pool, HISTOGRAM_KERNEL);
+  } // end count
+
+  /**
+   * Counts the letters in a file, like <tt>count(fileName)</tt>, but using
+   * the threads of the given pool and the given kernel.  All of the kernels
+   * give the same counts.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, or the kernel
+   * isn't <tt>SCALAR_KERNEL</tt>, <tt>HISTOGRAM_KERNEL</tt> or
+   * <tt>VECTOR_KERNEL</tt>.
+   *
+   * @param fileName the name of the file
+   * @param pool the pool to count in
+   * @param kernel <tt>SCALAR_KERNEL</tt>, <tt>HISTOGRAM_KERNEL</tt> or
+   *               <tt>VECTOR_KERNEL</tt>
+   * @return 26 counts: how many a's (or A's), then b's, and so on
+   */
+  public static long[] count(String fileName, ForkJoinPool pool, int kernel) {
+    return countFile(fileName, 0, -1, pool, kernel);
+  } // end count
+
+  /**
+   * Counts the letters in part of a file: the bytes from <tt>start</tt> up
+   * to (but not including) <tt>end</tt>, using the common ForkJoinPool.
+   * This is how <tt>IncrementalLetterCount</tt> counts just the part of a
+   * file that has been added since last time.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read.
+   *
+   * @param fileName the name of the file
+   * @param start where to start counting
+   * @param end where to stop counting (past the end of the file is the
+   *            same as the end of the file)
+   * @return 26 counts: how many a's (or A's), then b's, and so on
+   */
+  public static long[] count(String fileName, long start, long end) {
+    return count(fileName, start, end, ForkJoinPool.commonPool(), 
+      HISTOGRAM_KERNEL);
+  } // end count
+
+  /**
+   * Counts the letters in part of a file, like <tt>count(fileName, start,
+   * end)</tt>, but using the threads of the given pool and the given
+   * kernel.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, or the kernel
+   * isn't <tt>SCALAR_KERNEL</tt>, <tt>HISTOGRAM_KERNEL</tt> or
+   * <tt>VECTOR_KERNEL</tt>.
+   *
+   * @param fileName the name of the file
+   * @param start where to start counting
+   * @param end where to stop counting (past the end of the file is the
+   *            same as the end of the file)
+   * @param pool the pool to count in
+   * @param kernel <tt>SCALAR_KERNEL</tt>, <tt>HISTOGRAM_KERNEL</tt> or
+   *               <tt>VECTOR_KERNEL</tt>
+   * @return 26 counts: how many a's (or A's), then b's, and so on
+   */
+  public static long[] count(String fileName, long start, long end, 
+      ForkJoinPool pool, int kernel) {
+    return countFile(fileName, start, end, pool, kernel);
+  } // end count
+
+  // Does the work of the count methods.  An end of -1 means the end of
+  // the file.
+  private static long[] countFile(String fileName, long start, long end, 
+      ForkJoinPool pool, int kernel) {
+    if (kernel != SCALAR_KERNEL && kernel != HISTOGRAM_KERNEL 
+        && kernel != VECTOR_KERNEL)
+      TextFile.abort("Error: " + kernel + " is not a LetterHistogram kernel");
+    if (kernel == VECTOR_KERNEL && VECTOR == null)
+      kernel = SCALAR_KERNEL;
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+    }
+    catch (IOException e) {
+      TextFile.abort("Error: input file \"" + fileName + "\" does not exist");
+    } // end try
+    try (FileChannel in = channel) {
+      long size = in.size();
+      if (end < 0 || end > size)
+        end = size;
+      long[] counts = pool.invoke(new CountTask(in, Math.min(start, end), 
+        end, kernel));
+      long[] letters = new long[NOT_A_LETTER];
+      System.arraycopy(counts, PADDING, letters, 0, NOT_A_LETTER);
+      return letters;
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while reading from file \"" + fileName + "\"");
+      return null; // keep compiler happy
+    } // end try
+  } // end countFile
+
+  // Counts the bytes from start up to (not including) end, by splitting
+  // the range in two until it's small enough to count on its own.
+  private static class CountTask extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final int kernel;
+
+    CountTask(FileChannel channel, long start, long end, int kernel) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.kernel = kernel;
+    } // end constructor
+
+    protected long[] compute() {
+      if (end - start <= TASK_SIZE)
+        return countRange();
+      long middle = start + (end - start) / 2;
+      CountTask second = new CountTask(channel, middle, end, kernel);
+      second.fork();
+      long[] counts = new CountTask(channel, start, middle, kernel).compute();
+      long[] secondCounts = second.join();
+      for (int i = PADDING; i < PADDING + NOT_A_LETTER; i++)
+        counts[i] += secondCounts[i];
+      return counts;
+    } // end compute
+
+    private long[] countRange() {
+      long[] counts = new long[COUNTS_SIZE];
+      int[] histogram = kernel == HISTOGRAM_KERNEL ? new int[HISTOGRAM_SIZE] : null;
+      ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+      byte[] bytes = buffer.array();
+      long position = start;
+      try {
+        while (position < end) {
+          buffer.clear();
+          buffer.limit((int) Math.min(BLOCK_SIZE, end - position));
+          int n = channel.read(buffer, position);
+          if (n < 0)
+            break; // the file got shorter while we were counting
+          if (histogram != null)
+            countValues(bytes, 0, n, histogram);
+          else if (kernel == VECTOR_KERNEL)
+            VECTOR.countLetters(bytes, 0, n, counts, PADDING);
+          else
+            countLetters(bytes, 0, n, counts);
+          position += n;
+        } // end while
+      }
+      catch (IOException e) {
+        // (the channel is shared, so the tasks read with positions and
+        // never change the channel's own position)
+        TextFile.abort("I/O error while counting letters");
+      } // end try
+      if (histogram != null) {
+        for (int i = 0; i < NOT_A_LETTER; i++)
+          counts[PADDING + i] = histogram[INT_PADDING + 'a' + i] 
+            + histogram[INT_PADDING + 'A' + i];
+      } // end if
+      return counts;
+    } // end countRange
+  } // end class CountTask
+
+  // The scalar kernel: adds the letters in bytes[off] .. bytes[off+len-1]
+  // to counts (laid out as above)
+  private static void countLetters(byte[] bytes, int off, int len, 
+      long[] counts) {
+    int[] slot = SLOT;
+    for (int i = off, end = off + len; i < end; i++)
+      counts[slot[bytes[i] & 0xFF]]++;
+  } // end countLetters
+
+  // The histogram kernel: adds one to histogram[INT_PADDING + b] for each
+  // byte b in bytes[off] .. bytes[off+len-1].  With no table lookup and no
+  // case folding, each byte is one load and one increment.
+  private static void countValues(byte[] bytes, int off, int len, 
+      int[] histogram) {
+    for (int i = off, end = off + len; i < end; i++)
+      histogram[INT_PADDING + (bytes[i] & 0xFF)]++;
+  } // end countValues
+
+  public static void main(String[] args) {
+    int kernel = HISTOGRAM_KERNEL;
+    boolean verify = false;
+    int arg = 0;
+    if (arg < args.length && args[arg].equals("-scalar")) {
+      kernel = SCALAR_KERNEL;
+      arg++;
+    } 
+    else if (arg < args.length && args[arg].equals("-vector")) {
+      kernel = VECTOR_KERNEL;
+      arg++;
+    } 
+    else if (arg < args.length && args[arg].equals("-verify")) {
+      verify = true;
+      arg++;
+    } // end if
+    String fileName = arg < args.length ? args[arg] : "Lord_of_the_Rings.txt";
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    long[] letterCount = count(fileName, pool, kernel);
+    if (verify && (!Arrays.equals(letterCount, 
+        count(fileName, pool, SCALAR_KERNEL)) || !Arrays.equals(letterCount, 
+        count(fileName, pool, VECTOR_KERNEL))))
+      TextFile.abort("Error: the kernels gave different counts for \"" 
+        + fileName + "\"");
+
+    // print the counts just like Advanced_Workshop_letterCount does
+    TextFile out = TextFile.SCREEN;
+    for (int i = 0; i < 26; i++)
+      out.println("letter " + (char) ('a' + i) + ": " + letterCount[i]);
+  } // end main
+} // end class LetterHistogram
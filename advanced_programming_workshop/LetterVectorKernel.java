@@ -0,0 +1,59 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <tt>LetterHistogram</tt>'s vector kernel (<tt>VECTOR_KERNEL</tt>).  It
+ * case-folds and classifies a whole vector of bytes at a time (32 bytes
+ * with AVX2, 64 with AVX-512) using the JDK's Vector API, then adds each
+ * byte's letter to the counts.
+ * <p>
+ * The Vector API is still an incubator module, so this class has to be
+ * compiled on its own, with the module added: <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>javac --add-modules jdk.incubator.vector LetterVectorKernel.java</tt>
+ * <br>
+ * and it's only used when the program is run with <tt>--add-modules
+ * jdk.incubator.vector</tt> too.  <tt>LetterHistogram</tt> loads it by
+ * name, so everything else compiles and runs without it, and counts with
+ * <tt>SCALAR_KERNEL</tt> instead.
+ *
+ * @version 1.0, October 2026
+ */
+class LetterVectorKernel implements LetterHistogram.Kernel {
+  // The widest vectors the computer has
+  private static final VectorSpecies<Byte> SPECIES =
+    ByteVector.SPECIES_PREFERRED;
+
+  // Where a byte that isn't a letter is counted, after the 26 letters
+  private static final int NOT_A_LETTER = 26;
+
+  public void countLetters(byte[] bytes, int off, int len, long[] counts,
+      int first) {
+    ByteVector notALetter = ByteVector.broadcast(SPECIES, (byte) NOT_A_LETTER);
+    byte[] slots = new byte[SPECIES.length()];
+    int i = off;
+    int end = off + len;
+    for (int vectorEnd = off + SPECIES.loopBound(len); i < vectorEnd;
+        i += SPECIES.length()) {
+      // Setting the 0x20 bit makes 'A' to 'Z' into 'a' to 'z' (and doesn't
+      // make anything else into a letter), so after taking away 'a' the
+      // letters are the bytes that are 0 to 25, unsigned
+      ByteVector letter = ByteVector.fromArray(SPECIES, bytes, i)
+        .or((byte) 0x20).sub((byte) 'a');
+      VectorMask<Byte> isLetter =
+        letter.compare(VectorOperators.UNSIGNED_LT, (byte) NOT_A_LETTER);
+      notALetter.blend(letter, isLetter).intoArray(slots, 0);
+      for (int j = 0; j < slots.length; j++)
+        counts[first + slots[j]]++;
+    } // end for
+
+    // the bytes left over, one at a time in the same way
+    for (; i < end; i++) {
+      int letter = ((bytes[i] | 0x20) & 0xFF) - 'a';
+      counts[first + (letter >= 0 && letter < NOT_A_LETTER ? letter
+        : NOT_A_LETTER)]++;
+    } // end for
+  } // end countLetters
+} // end class LetterVectorKernel
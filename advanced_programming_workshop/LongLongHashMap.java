@@ -0,0 +1,312 @@
+import java.util.Arrays;
+
+/**
+ * A map from longs to longs, for counting things that can be packed into a
+ * long number (like the n-grams of <tt>NGramCounter</tt>).  It works like a
+ * <tt>HashMap&lt;Long, Long&gt;</tt>, but keeps the keys and values in plain
+ * long arrays, so adding to a count never makes a new object.  That makes
+ * it several times faster and many times smaller than a HashMap.  It's the
+ * same as <tt>IntLongHashMap</tt> except for the type of the keys, and
+ * <tt>topKeys</tt>, which finds the keys with the biggest values.
+ * <p>
+ * The keys are kept in an "open addressing" hash table: each key has a
+ * place in the table worked out from its value, and if that place is
+ * taken, the key goes in the next free place after it.  The table doubles
+ * in size whenever it gets half full, so keys are nearly always found in
+ * their own place or very close to it.
+ * <p>
+ * A key that isn't in the map has the value 0, so counting is just
+ * <tt>map.add(key, 1)</tt>.
+ *
+ * @version 1.0, October 2026
+ */
+public class LongLongHashMap {
+  private static final int MIN_CAPACITY = 16;
+
+  // The table.  A place is free if its key is FREE_KEY; the key FREE_KEY
+  // itself is kept separately, in hasFreeKey and freeKeyValue.
+  private static final long FREE_KEY = 0;
+  private long[] keys;
+  private long[] values;
+  private boolean hasFreeKey;
+  private long freeKeyValue;
+
+  // how many keys are in the map, and how many can be before it grows
+  private int size;
+  private int growAt;
+
+  // keys.length - 1 (the length is always a power of two), and
+  // 64 - log2(keys.length)
+  private int mask;
+  private int shift;
+
+  /**
+   * Makes an empty map.
+   */
+  public LongLongHashMap() {
+    this(MIN_CAPACITY);
+  } // end constructor
+
+  /**
+   * Makes an empty map with room for about <tt>expected</tt> keys before it
+   * has to grow.
+   *
+   * @param expected how many keys the map will probably hold
+   */
+  public LongLongHashMap(int expected) {
+    int capacity = MIN_CAPACITY;
+    while (capacity / 2 < expected && capacity < (1 << 30))
+      capacity *= 2;
+    allocate(capacity);
+  } // end constructor
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+    shift = Integer.numberOfLeadingZeros(capacity) + 33;
+    growAt = capacity / 2;
+  } // end allocate
+
+  // Where in the table to start looking for a key.  Multiplying by a big
+  // odd number mixes all of the key's bits into the top ones, so that keys
+  // that are close together (like the letters of one alphabet) spread out,
+  // and the top bits are the place.
+  private int place(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  } // end place
+
+  /**
+   * Gets the value for a key.
+   *
+   * @param key the key to look up
+   * @return its value, or 0 if it isn't in the map
+   */
+  public long get(long key) {
+    if (key == FREE_KEY)
+      return freeKeyValue;
+    for (int i = place(key); ; i = (i + 1) & mask) {
+      long k = keys[i];
+      if (k == key)
+        return values[i];
+      if (k == FREE_KEY)
+        return 0;
+    } // end for
+  } // end get
+
+  /**
+   * Tells you whether a key is in the map (even with a value of 0).
+   *
+   * @param key the key to look for
+   * @return true if it's in the map
+   */
+  public boolean containsKey(long key) {
+    if (key == FREE_KEY)
+      return hasFreeKey;
+    for (int i = place(key); ; i = (i + 1) & mask) {
+      long k = keys[i];
+      if (k == key)
+        return true;
+      if (k == FREE_KEY)
+        return false;
+    } // end for
+  } // end containsKey
+
+  /**
+   * Sets the value for a key, adding the key to the map if it isn't there.
+   *
+   * @param key the key
+   * @param value its new value
+   */
+  public void put(long key, long value) {
+    if (key == FREE_KEY) {
+      addFreeKey();
+      freeKeyValue = value;
+    } 
+    else {
+      int i = insert(key); // (may grow the table, so before using values)
+      values[i] = value;
+    } // end if
+  } // end put
+
+  /**
+   * Adds to the value for a key, adding the key to the map (with a value
+   * of 0 to start with) if it isn't there.
+   *
+   * @param key the key
+   * @param amount how much to add to its value
+   */
+  public void add(long key, long amount) {
+    if (key == FREE_KEY) {
+      addFreeKey();
+      freeKeyValue += amount;
+    } 
+    else {
+      int i = insert(key); // (may grow the table, so before using values)
+      values[i] += amount;
+    } // end if
+  } // end add
+
+  private void addFreeKey() {
+    if (!hasFreeKey) {
+      hasFreeKey = true;
+      size++;
+    } // end if
+  } // end addFreeKey
+
+  // Returns the key's place in the table, first adding it (with the
+  // value 0) if it isn't there.  The key mustn't be FREE_KEY.
+  private int insert(long key) {
+    int i = place(key);
+    while (true) {
+      long k = keys[i];
+      if (k == key)
+        return i;
+      if (k == FREE_KEY)
+        break;
+      i = (i + 1) & mask;
+    } // end while
+    if (size >= growAt) {
+      grow();
+      i = place(key);
+      while (keys[i] != FREE_KEY)
+        i = (i + 1) & mask;
+    } // end if
+    keys[i] = key;
+    size++;
+    return i;
+  } // end insert
+
+  // Doubles the size of the table, putting each key in its new place
+  private void grow() {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    for (int j = 0; j < oldKeys.length; j++) {
+      long key = oldKeys[j];
+      if (key == FREE_KEY)
+        continue;
+      int i = place(key);
+      while (keys[i] != FREE_KEY)
+        i = (i + 1) & mask;
+      keys[i] = key;
+      values[i] = oldValues[j];
+    } // end for
+  } // end grow
+
+  /**
+   * @return how many keys are in the map
+   */
+  public int size() {
+    return size;
+  } // end size
+
+  /**
+   * Gives you all of the keys in the map, smallest first.
+   *
+   * @return a new array of the keys
+   */
+  public long[] keys() {
+    long[] result = new long[size];
+    int n = 0;
+    if (hasFreeKey)
+      result[n++] = FREE_KEY;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY)
+        result[n++] = keys[i];
+    } // end for
+    Arrays.sort(result);
+    return result;
+  } // end keys
+
+  /**
+   * Finds the <tt>k</tt> keys with the biggest values, without sorting the
+   * whole map: the best <tt>k</tt> so far are kept in a "min-heap", which
+   * always knows which of them has the smallest value, so each of the
+   * other keys only has to be compared with that one.  Keys with equal
+   * values come smallest key first.
+   *
+   * @param k how many keys you want
+   * @return the keys (fewer than k if the map doesn't have k), the one with
+   *         the biggest value first
+   */
+  public long[] topKeys(int k) {
+    k = Math.max(0, Math.min(k, size));
+    long[] heapKeys = new long[k];
+    long[] heapValues = new long[k];
+    int n = 0;
+    for (int i = -1; i < keys.length; i++) {
+      long key;
+      long value;
+      if (i < 0) {
+        // (the key FREE_KEY isn't in the table)
+        if (!hasFreeKey)
+          continue;
+        key = FREE_KEY;
+        value = freeKeyValue;
+      }
+      else {
+        key = keys[i];
+        if (key == FREE_KEY)
+          continue;
+        value = values[i];
+      } // end if
+      if (n < k) {
+        // not full yet: add it at the bottom and move it up
+        int j = n++;
+        while (j > 0) {
+          int parent = (j - 1) / 2;
+          if (!worse(key, value, heapKeys[parent], heapValues[parent]))
+            break;
+          heapKeys[j] = heapKeys[parent];
+          heapValues[j] = heapValues[parent];
+          j = parent;
+        } // end while
+        heapKeys[j] = key;
+        heapValues[j] = value;
+      }
+      else if (k > 0 && worse(heapKeys[0], heapValues[0], key, value))
+        siftDown(heapKeys, heapValues, n, key, value);
+    } // end for
+
+    // take the worst one off the heap each time, filling the answer from
+    // the back
+    long[] result = new long[n];
+    while (n > 0) {
+      result[n - 1] = heapKeys[0];
+      n--;
+      siftDown(heapKeys, heapValues, n, heapKeys[n], heapValues[n]);
+    } // end while
+    return result;
+  } // end topKeys
+
+  // True if (key1, value1) ranks below (key2, value2) for topKeys
+  private static boolean worse(long key1, long value1, long key2, 
+      long value2) {
+    return value1 < value2 || (value1 == value2 && key1 > key2);
+  } // end worse
+
+  // Puts (key, value) at the top of the heap of n entries (replacing what
+  // was there) and moves it down to where it belongs
+  private static void siftDown(long[] heapKeys, long[] heapValues, int n,
+      long key, long value) {
+    int j = 0;
+    while (true) {
+      int child = 2 * j + 1;
+      if (child >= n)
+        break;
+      if (child + 1 < n && worse(heapKeys[child + 1], heapValues[child + 1],
+          heapKeys[child], heapValues[child]))
+        child++;
+      if (!worse(heapKeys[child], heapValues[child], key, value))
+        break;
+      heapKeys[j] = heapKeys[child];
+      heapValues[j] = heapValues[child];
+      j = child;
+    } // end while
+    if (n > 0) {
+      heapKeys[j] = key;
+      heapValues[j] = value;
+    } // end if
+  } // end siftDown
+} // end class LongLongHashMap
@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Counts the n-grams in a text: every run of <tt>n</tt> letters in a row
+ * (like "th" and "he" in "the", for n = 2), or every run of <tt>n</tt>
+ * words in a row (like "the ring" and "ring of" in "the ring of power").
+ * The most common ones come back from <tt>top</tt>.
+ * <p>
+ * Each n-gram is packed into a single long number and counted in a
+ * <tt>LongLongHashMap</tt>, so counting never makes objects, even for big
+ * texts with millions of different n-grams.
+ * <ul>
+ * <li>Letter n-grams are made of the letters 'a' to 'z', with upper and
+ * lower case the same, like <tt>TextFile.isLetter</tt>.  Anything else
+ * (a space, a digit, punctuation) ends a word, and letter n-grams don't
+ * cross from one word to the next.  Each letter takes 5 bits, so n can be
+ * up to 12.</li>
+ * <li>Word n-grams are made of words as <tt>readWord</tt> reads them, except
+ * that punctuation counts as white space (see <tt>PUNCTUATION</tt>).  Upper
+ * and lower case are different.  Each different word gets a number, and the
+ * numbers of the n words are packed into the long; with longer n-grams
+ * there's less room for each number, so there can be at most 2<sup>64/n</sup>
+ * different words (about 2 million for n = 3, 65536 for n = 4).</li>
+ * </ul>
+ * <p>
+ * Usage: <tt>java NGramCounter letters|words n [k] [fileName]</tt> prints
+ * the k (default 20) most common n-grams of the file (default
+ * <tt>Lord_of_the_Rings.txt</tt>), with their counts.
+ * <p>
+ * Like <tt>TextFile</tt>, none of the methods throw exceptions.  When errors
+ * occur, they print error messages and abort the program.
+ *
+ * @version 1.0, October 2026
+ */
+public class NGramCounter {
+  /**
+   * Constant for the NGramCounter constructor, meaning n-grams of letters.
+   */
+  public static final int LETTERS = 0;
+
+  /**
+   * Constant for the NGramCounter constructor, meaning n-grams of words.
+   */
+  public static final int WORDS = 1;
+
+  /**
+   * The characters that count as white space (rather than as part of a
+   * word) for word n-grams.
+   */
+  public static final String PUNCTUATION = ".,;:!?\"()[]{}";
+
+  // Longest letter n-grams, and how many bits each letter takes
+  private static final int MAX_LETTERS = 12;
+  private static final int LETTER_BITS = 5;
+
+  // For each of the first 128 characters, its code in a letter n-gram:
+  // 1 to 26 for the letters, 0 for anything else
+  private static final byte[] LETTER_CODE = new byte[128];
+  static {
+    for (int i = 0; i < 26; i++)
+      LETTER_CODE['a' + i] = LETTER_CODE['A' + i] = (byte) (i + 1);
+  }
+
+  // How many chars to read from a file at a time
+  private static final int BLOCK_SIZE = 65536;
+
+  private final int kind;
+  private final int n;
+
+  // how many bits each letter or word number takes in a key, and a mask
+  // of the n * bits bits a key uses
+  private final int bits;
+  private final long mask;
+
+  private final LongLongHashMap counts = new LongLongHashMap();
+
+  // The n-gram being built, and how many letters or words are in it (up
+  // to n).  For letters it starts again at the end of each word.
+  private long key;
+  private int run;
+
+  // For word n-grams: each word's number, and the words in number order
+  private final HashMap<String, Integer> wordNumbers =
+    new HashMap<String, Integer>();
+  private final ArrayList<String> words = new ArrayList<String>();
+
+  /**
+   * Makes a counter for n-grams of letters or words.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if kind isn't <tt>LETTERS</tt> or <tt>WORDS</tt>, or n is
+   * less than 1 or (for letters) more than 12.
+   *
+   * @param kind <tt>LETTERS</tt> or <tt>WORDS</tt>
+   * @param n how many letters or words in each n-gram
+   */
+  public NGramCounter(int kind, int n) {
+    if (kind != LETTERS && kind != WORDS)
+      TextFile.abort("Error: " + kind + " is not a kind of n-gram");
+    if (n < 1 || (kind == LETTERS && n > MAX_LETTERS))
+      TextFile.abort("Error: can't count n-grams of " + n
+        + (kind == LETTERS ? " letters" : " words"));
+    this.kind = kind;
+    this.n = n;
+    bits = kind == LETTERS ? LETTER_BITS : Math.min(32, 64 / n);
+    mask = n * bits == 64 ? -1L : (1L << (n * bits)) - 1;
+  } // end constructor
+
+  /**
+   * Counts the n-grams in a file.  Counting more than one file counts
+   * n-grams that run from the end of one to the start of the next.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, or it has
+   * too many different words for word n-grams this long.
+   *
+   * @param fileName the name of the file
+   */
+  public void addFile(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    if (kind == LETTERS) {
+      char[] chars = new char[BLOCK_SIZE];
+      int count;
+      while ((count = in.readChars(chars, 0, chars.length)) > 0)
+        addLetters(chars, 0, count);
+    }
+    else {
+      in.setCharClass(PUNCTUATION, TextFile.WHITE_SPACE);
+      while (true) {
+        in.skipWhiteSpace();
+        if (in.eof())
+          break;
+        addWord(in.nextWordView());
+      } // end while
+    } // end if
+    in.close();
+  } // end addFile
+
+  // Counts the letter n-grams ending in chars[off] .. chars[off+len-1]
+  private void addLetters(char[] chars, int off, int len) {
+    byte[] codes = LETTER_CODE;
+    long key = this.key;
+    int run = this.run;
+    for (int i = off, end = off + len; i < end; i++) {
+      char ch = chars[i];
+      int code = ch < 128 ? codes[ch] : 0;
+      if (code == 0) {
+        run = 0;
+        continue;
+      } // end if
+      key = (key << LETTER_BITS | code) & mask;
+      if (++run >= n) {
+        run = n; // (so it can't overflow)
+        counts.add(key, 1);
+      } // end if
+    } // end for
+    this.key = key;
+    this.run = run;
+  } // end addLetters
+
+  // Counts the word n-gram ending with this word.  Looking the word up
+  // doesn't copy it; only a new word is made into a String.
+  private void addWord(TextFile.WordView word) {
+    Integer number = wordNumbers.get(word);
+    if (number == null) {
+      number = words.size();
+      if (bits < 32 && number >= 1L << bits)
+        TextFile.abort("Error: too many different words for n-grams of "
+          + n + " words");
+      String newWord = word.toString();
+      wordNumbers.put(newWord, number);
+      words.add(newWord);
+    } // end if
+    key = (key << bits | number) & mask;
+    if (++run >= n) {
+      run = n; // (so it can't overflow)
+      counts.add(key, 1);
+    } // end if
+  } // end addWord
+
+  /**
+   * @return the counts, as a map from each n-gram's key to its count (see
+   *         <tt>toText</tt>)
+   */
+  public LongLongHashMap getCounts() {
+    return counts;
+  } // end getCounts
+
+  /**
+   * @param k how many n-grams you want
+   * @return the keys of the k most common n-grams, most common first (see
+   *         <tt>toText</tt>)
+   */
+  public long[] top(int k) {
+    return counts.topKeys(k);
+  } // end top
+
+  /**
+   * @param key an n-gram's key
+   * @return how many times it has been counted
+   */
+  public long getCount(long key) {
+    return counts.get(key);
+  } // end getCount
+
+  /**
+   * Turns an n-gram's key back into its letters, or its words separated by
+   * spaces.
+   *
+   * @param key an n-gram's key
+   * @return the n-gram
+   */
+  public String toText(long key) {
+    StringBuilder text = new StringBuilder();
+    long itemMask = bits == 64 ? -1L : (1L << bits) - 1;
+    for (int i = n - 1; i >= 0; i--) {
+      int item = (int) (key >>> (i * bits) & itemMask);
+      if (kind == LETTERS)
+        text.append((char) ('a' + item - 1));
+      else {
+        if (i < n - 1)
+          text.append(' ');
+        text.append(words.get(item));
+      } // end if
+    } // end for
+    return text.toString();
+  } // end toText
+
+  public static void main(String[] args) {
+    if (args.length < 2 || args.length > 4
+        || !(args[0].equals("letters") || args[0].equals("words")))
+      TextFile.abort("Usage: java NGramCounter letters|words n [k] [fileName]");
+    int n = 0;
+    int k = 20;
+    try {
+      n = Integer.parseInt(args[1]);
+      if (args.length > 2)
+        k = Integer.parseInt(args[2]);
+    }
+    catch (NumberFormatException e) {
+      TextFile.abort("Usage: java NGramCounter letters|words n [k] [fileName]");
+    } // end try
+    String fileName = args.length > 3 ? args[3] : "Lord_of_the_Rings.txt";
+    NGramCounter counter =
+      new NGramCounter(args[0].equals("letters") ? LETTERS : WORDS, n);
+    counter.addFile(fileName);
+    TextFile out = TextFile.SCREEN;
+    for (long key : counter.top(k))
+      out.println(counter.toText(key) + ": " + counter.getCount(key));
+  } // end main
+} // end class NGramCounter
@@ -0,0 +1,354 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves arrays of numbers in binary files and loads them again.  Writing
+ * numbers as text with <tt>TextFile</tt> and reading them back with
+ * <tt>readInt</tt> or <tt>readDouble</tt> means turning every number into
+ * digits and back, which takes most of the time for big data sets.  A
+ * binary number file holds the numbers exactly as they are in memory, so
+ * <tt>readInts</tt> and <tt>readDoubles</tt> just copy them into an array.
+ * <p>
+ * A number file holds either ints or doubles.  It starts with a 16-byte
+ * header: the magic number <tt>0x4E554D31</tt> ("NUM1"), the type (1 for
+ * ints, 2 for doubles) and the count of numbers as a long.  Then come the
+ * numbers in blocks, each one a count (an int) followed by that many
+ * numbers.  Everything is little-endian.
+ * <p>
+ * Running this class as a program converts between binary number files and
+ * text files like <tt>randomNumbers0-99.txt</tt> ("46, 14, 27, ..."):
+ * <p>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>java NumberFile toBinary randomNumbers0-99.txt numbers.bin</tt> <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>java NumberFile toBinary samples.txt samples.bin double</tt> <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>java NumberFile toText numbers.bin numbers.txt</tt>
+ * <p>
+ * Like <tt>TextFile</tt>, none of the methods throw exceptions.  When errors
+ * occur, they print error messages and abort the program.
+ *
+ * @version 1.0, October 2026
+ */
+public class NumberFile {
+  // What the header says
+  private static final int MAGIC = 0x4E554D31;
+  private static final int INTS = 1;
+  private static final int DOUBLES = 2;
+  private static final int HEADER_SIZE = 16;
+
+  // How many numbers go in a block
+  private static final int BLOCK_COUNT = 65536;
+
+  // The class is never instantiated: it's just static methods
+  private NumberFile() {
+  } // end constructor
+
+  /**
+   * Writes an array of integers to a binary number file, replacing whatever
+   * was in the file.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file can't be written.
+   *
+   * @param fileName the name of the file
+   * @param values the numbers to write
+   */
+  public static void writeInts(String fileName, int[] values) {
+    try (FileChannel channel = openForWriting(fileName)) {
+      ByteBuffer buffer = newBuffer(4);
+      writeHeader(channel, buffer, INTS, values.length);
+      for (int done = 0; done < values.length; ) {
+        int n = Math.min(BLOCK_COUNT, values.length - done);
+        buffer.clear();
+        buffer.putInt(n);
+        buffer.asIntBuffer().put(values, done, n);
+        buffer.position(4 + 4 * n);
+        buffer.flip();
+        writeFully(channel, buffer);
+        done += n;
+      } // end for
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while writing to file \"" + fileName + "\"");
+    } // end try
+  } // end writeInts
+
+  /**
+   * Writes an array of doubles to a binary number file, replacing whatever
+   * was in the file.  The numbers are saved exactly, with no rounding.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file can't be written.
+   *
+   * @param fileName the name of the file
+   * @param values the numbers to write
+   */
+  public static void writeDoubles(String fileName, double[] values) {
+    try (FileChannel channel = openForWriting(fileName)) {
+      ByteBuffer buffer = newBuffer(8);
+      writeHeader(channel, buffer, DOUBLES, values.length);
+      for (int done = 0; done < values.length; ) {
+        int n = Math.min(BLOCK_COUNT, values.length - done);
+        buffer.clear();
+        buffer.putInt(n);
+        buffer.asDoubleBuffer().put(values, done, n);
+        buffer.position(4 + 8 * n);
+        buffer.flip();
+        writeFully(channel, buffer);
+        done += n;
+      } // end for
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while writing to file \"" + fileName + "\"");
+    } // end try
+  } // end writeDoubles
+
+  /**
+   * Reads all of the integers from a binary number file written by
+   * <tt>writeInts</tt>.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, if it isn't a
+   * binary number file, or if it holds doubles.
+   *
+   * @param fileName the name of the file
+   * @return the numbers in the file
+   */
+  public static int[] readInts(String fileName) {
+    try (FileChannel channel = openForReading(fileName)) {
+      ByteBuffer buffer = newBuffer(4);
+      int[] values = new int[readHeader(channel, buffer, fileName, INTS)];
+      for (int done = 0; done < values.length; ) {
+        int n = readBlock(channel, buffer, fileName, 4, values.length - done);
+        buffer.asIntBuffer().get(values, done, n);
+        done += n;
+      } // end for
+      return values;
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while reading from file \"" + fileName + "\"");
+      return null; // keep compiler happy
+    } // end try
+  } // end readInts
+
+  /**
+   * Reads all of the doubles from a binary number file written by
+   * <tt>writeDoubles</tt>.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, if it isn't a
+   * binary number file, or if it holds ints.
+   *
+   * @param fileName the name of the file
+   * @return the numbers in the file
+   */
+  public static double[] readDoubles(String fileName) {
+    try (FileChannel channel = openForReading(fileName)) {
+      ByteBuffer buffer = newBuffer(8);
+      double[] values = new double[readHeader(channel, buffer, fileName, DOUBLES)];
+      for (int done = 0; done < values.length; ) {
+        int n = readBlock(channel, buffer, fileName, 8, values.length - done);
+        buffer.asDoubleBuffer().get(values, done, n);
+        done += n;
+      } // end for
+      return values;
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while reading from file \"" + fileName + "\"");
+      return null; // keep compiler happy
+    } // end try
+  } // end readDoubles
+
+  /**
+   * Converts between text and binary number files.  The arguments are
+   * <tt>toBinary</tt> or <tt>toText</tt>, the file to read, the file to
+   * write and (for <tt>toBinary</tt>) <tt>int</tt> or <tt>double</tt>,
+   * which is <tt>int</tt> if it's left out.  Text files are read with
+   * <tt>TextFile</tt>, so the numbers can be separated by commas or white
+   * space; they're written as a single line, like
+   * <tt>"46, 14, 27, "</tt>.
+   *
+   * @param args what to convert
+   */
+  public static void main(String[] args) {
+    if (args.length == 3 && args[0].equals("toText"))
+      toText(args[1], args[2]);
+    else if ((args.length == 3 || args.length == 4) && args[0].equals("toBinary")) {
+      if (args.length == 3 || args[3].equals("int"))
+        writeInts(args[2], readTextInts(args[1]));
+      else if (args[3].equals("double"))
+        writeDoubles(args[2], readTextDoubles(args[1]));
+      else
+        TextFile.abort("Error: the type must be int or double, not \""
+          + args[3] + "\"");
+    }
+    else
+      TextFile.abort("Usage: java NumberFile toBinary textFile binaryFile [int|double]\n"
+        + "       java NumberFile toText binaryFile textFile");
+  } // end main
+
+  // Reads all the integers in a text file.
+  private static int[] readTextInts(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    int[] values = new int[BLOCK_COUNT];
+    int[] chunk = new int[BLOCK_COUNT];
+    int count = 0;
+    int n;
+    while ((n = in.readInts(chunk)) > 0) {
+      if (count + n > values.length)
+        values = Arrays.copyOf(values, Math.max(values.length * 2, count + n));
+      System.arraycopy(chunk, 0, values, count, n);
+      count += n;
+    } // end while
+    in.close();
+    return Arrays.copyOf(values, count);
+  } // end readTextInts
+
+  // Reads all the doubles in a text file.
+  private static double[] readTextDoubles(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    double[] values = new double[BLOCK_COUNT];
+    int count = 0;
+    while (in.hasNextDouble()) {
+      if (count == values.length)
+        values = Arrays.copyOf(values, values.length * 2);
+      values[count++] = in.nextDouble();
+    } // end while
+    if (!in.eof())
+      in.nextDouble(); // aborts with the usual message about the bad number
+    in.close();
+    return Arrays.copyOf(values, count);
+  } // end readTextDoubles
+
+  // Writes a binary number file out as text.
+  private static void toText(String binaryName, String textName) {
+    int type = 0;
+    try (FileChannel channel = openForReading(binaryName)) {
+      ByteBuffer header = newBuffer(0);
+      readHeader(channel, header, binaryName, 0);
+      type = header.getInt(4);
+    }
+    catch (IOException e) {
+      TextFile.abort("I/O error while reading from file \"" + binaryName + "\"");
+    } // end try
+    TextFile out = new TextFile(TextFile.OUTPUT, textName);
+    if (type == INTS) {
+      for (int value : readInts(binaryName)) {
+        out.print(value);
+        out.print(", ");
+      } // end for
+    }
+    else {
+      for (double value : readDoubles(binaryName)) {
+        out.print(value);
+        out.print(", ");
+      } // end for
+    } // end if
+    out.close();
+  } // end toText
+
+  /* *************************************************************************
+   * Helpers for the channels and buffers
+   * *************************************************************************/
+
+  // A direct buffer big enough for a block of numbers of the given size
+  // (or just the header, if size is 0)
+  private static ByteBuffer newBuffer(int size) {
+    return ByteBuffer.allocateDirect(Math.max(HEADER_SIZE, 4 + size * BLOCK_COUNT))
+      .order(ByteOrder.LITTLE_ENDIAN);
+  } // end newBuffer
+
+  private static FileChannel openForWriting(String fileName) {
+    try {
+      return FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    catch (IOException e) {
+      TextFile.abort("Error: can't open file \"" + fileName + "\" for writing");
+      return null; // keep compiler happy
+    } // end try
+  } // end openForWriting
+
+  private static FileChannel openForReading(String fileName) {
+    try {
+      return FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+    }
+    catch (IOException e) {
+      TextFile.abort("Error: input file \"" + fileName + "\" does not exist");
+      return null; // keep compiler happy
+    } // end try
+  } // end openForReading
+
+  private static void writeHeader(FileChannel channel, ByteBuffer buffer,
+      int type, long count) throws IOException {
+    buffer.clear();
+    buffer.putInt(MAGIC).putInt(type).putLong(count);
+    buffer.flip();
+    writeFully(channel, buffer);
+  } // end writeHeader
+
+  // Reads the header, checking it's the right type of file (unless type is
+  // 0), and returns the count.  The header is left in the buffer.
+  private static int readHeader(FileChannel channel, ByteBuffer buffer,
+      String fileName, int type) throws IOException {
+    buffer.clear();
+    buffer.limit(HEADER_SIZE);
+    if (!readFully(channel, buffer) || buffer.getInt(0) != MAGIC)
+      TextFile.abort("Error: \"" + fileName + "\" is not a binary number file");
+    int fileType = buffer.getInt(4);
+    long count = buffer.getLong(8);
+    if ((fileType != INTS && fileType != DOUBLES) || count < 0)
+      TextFile.abort("Error: \"" + fileName + "\" is not a binary number file");
+    if (type != 0 && fileType != type)
+      TextFile.abort("Error: \"" + fileName + "\" holds "
+        + (fileType == INTS ? "ints" : "doubles") + ", not "
+        + (type == INTS ? "ints" : "doubles"));
+    if (count > Integer.MAX_VALUE - 8)
+      TextFile.abort("Error: \"" + fileName + "\" has too many numbers to read all at once");
+    return (int) count;
+  } // end readHeader
+
+  // Reads the next block into the buffer and returns how many numbers it
+  // holds; the buffer is left at the first number.
+  private static int readBlock(FileChannel channel, ByteBuffer buffer,
+      String fileName, int size, int left) throws IOException {
+    buffer.clear();
+    buffer.limit(4);
+    if (!readFully(channel, buffer))
+      TextFile.abort("Error: binary number file \"" + fileName + "\" is cut short");
+    int n = buffer.getInt(0);
+    if (n < 1 || n > BLOCK_COUNT || n > left)
+      TextFile.abort("Error: binary number file \"" + fileName + "\" is damaged");
+    buffer.clear();
+    buffer.limit(size * n);
+    if (!readFully(channel, buffer))
+      TextFile.abort("Error: binary number file \"" + fileName + "\" is cut short");
+    buffer.flip();
+    return n;
+  } // end readBlock
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+  } // end writeFully
+
+  // Fills the buffer up to its limit; false if the file ends first.
+  private static boolean readFully(FileChannel channel, ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining())
+      if (channel.read(buffer) < 0)
+        return false;
+    return true;
+  } // end readFully
+} // end class NumberFile
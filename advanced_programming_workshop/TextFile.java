@@ -1,5 +1,51 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.lang.management.ManagementFactory;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 
 /**
  * A simple I/O class to help students read from or write to a text file. The
@@ -10,6 +56,12 @@ import java.text.DecimalFormat;
  * None of the methods from this class throw exceptions. When errors occur, they
  * print error messages and abort the program.
  * <p>
+ * If you run your program with <tt>-Dtextfile.stats=true</tt>, every TextFile
+ * keeps count of what it reads and writes and how long it waits, and
+ * publishes the numbers as a JMX MBean (see <tt>TextFile.StatsMBean</tt>) that
+ * you can look at with JConsole or VisualVM.  Every TextFile also reports
+ * refills, flushes and aborts as Flight Recorder events.
+ * <p>
  * For more details, see method descriptions below as well as example programs
  * provided with this class.
  * 
@@ -23,12 +75,52 @@ import java.text.DecimalFormat;
  *   added padding and formatting functions
  * 1.3a: September 2006: more user-friendly error message when readInt hits end of file
  * 1.4: June 2007: added INPUT and OUTPUT constants
+ * 1.5: October 2026: input files are read a block at a time into a char
+ *   array instead of a line at a time into a StringBuffer
+ * 1.6: October 2026: added MAPPED_INPUT mode for reading very large files
+ * 1.7: October 2026: added readChars and readAll for reading many characters
+ *   at once
+ * 1.8: October 2026: added readLong; numbers are read straight from the input
+ *   buffer instead of through a String
+ * 1.9: October 2026: added setDelimiters, hasNextInt, nextInt, hasNextDouble,
+ *   nextDouble and readInts for reading lists like "46, 14, 27"
+ * 1.10: October 2026: added lines, words and chars streams
+ * 1.11: October 2026: added PREFETCH_INPUT mode and getStallCount
+ * 1.12: October 2026: added line indexes, for reading lines by number
+ * 1.13: October 2026: reads and writes compressed (.gz, .zz) files
+ * 1.14: October 2026: KEYBOARD reads big blocks when the input is piped in
+ * 1.15: October 2026: output files are buffered; added flush, setFlushPolicy,
+ *   setFlushInterval and setBufferSize
+ * 1.16: October 2026: numbers with a width are formatted straight into the
+ *   output buffer
+ * 1.17: October 2026: added ASYNC_OUTPUT mode, setWhenFull, getQueueDepth and
+ *   getDroppedCount
+ * 1.18: October 2026: added SHARED_OUTPUT mode
+ * 1.19: October 2026: added printRow and printColumns
+ * 1.20: October 2026: statistics through JMX (with -Dtextfile.stats=true) and
+ *   Flight Recorder events
+ * 1.21: October 2026: faster readLine (see TextFileBenchmark)
+ * 1.22: October 2026: added nextWordView
+ * 1.23: October 2026: added setCharClass and getCharClass; white space is
+ *   skipped a block at a time
+ * 1.24: October 2026: Flight Recorder events are only made while Flight
+ *   Recorder is running, so TextFile starts up quickly
+ * 1.25: October 2026: KEYBOARD reads from System.in again (in big blocks),
+ *   so System.setIn works; ASYNC_OUTPUT files only queue whole lines
  */
 public class TextFile {
 
+  // True if TextFiles keep statistics (see StatsMBean).  Being static and
+  // final, the code that keeps them is dropped by the JIT compiler when
+  // it's off.  It has to be set before KEYBOARD and SCREEN are made, just
+  // below: static fields are set in order.
+  private static final boolean STATS = Boolean.getBoolean("textfile.stats");
+
   /**
    * A TextFile object for reading user input from the keyboard ("standard
-   * input")
+   * input").  If the program's input isn't really a keyboard (for example
+   * it's piped in with <tt>cat corpus.txt | java MyProgram</tt>) this reads
+   * the input in big blocks, which is much faster.
    */
   public static final TextFile KEYBOARD = new TextFile(true);
 
@@ -52,6 +144,166 @@ public class TextFile {
    */
   public static final boolean OUTPUT = false;
 
+  /**
+   * Constant for use in the TextFile constructor, meaning that the file will be
+   * an input file for reading, like <tt>TextFile.INPUT</tt>, but that the
+   * operating system should map the file straight into memory instead of
+   * copying it through the usual file buffers. This is faster for very large
+   * files (including files bigger than 2 GB); all of the read methods work
+   * exactly the same way as for an <tt>INPUT</tt> file.
+   */
+  public static final int MAPPED_INPUT = 2;
+
+  /**
+   * Constant for use in the TextFile constructor, meaning that the file will be
+   * an input file for reading, like <tt>TextFile.INPUT</tt>, but that another
+   * thread will read ahead of your program while it works on what it has
+   * already read.  This helps when the file is on a slow disk or network or
+   * is a pipe.  All of the read methods work exactly the same way as for an
+   * <tt>INPUT</tt> file; <tt>getStallCount</tt> tells you how often your
+   * program had to wait anyway.
+   */
+  public static final int PREFETCH_INPUT = 3;
+
+  /**
+   * Constant for use in the TextFile constructor, meaning that the file will be
+   * an input file for reading that has been compressed with gzip.  You only
+   * need this if the file's name doesn't end with <tt>".gz"</tt>; an
+   * <tt>INPUT</tt> file with a name like that is always uncompressed as it's
+   * read.  All of the read methods work exactly the same way as for an
+   * <tt>INPUT</tt> file.
+   */
+  public static final int GZIP_INPUT = 4;
+
+  /**
+   * Constant for use in the TextFile constructor, meaning that the new file will
+   * be an output file for writing, like <tt>TextFile.OUTPUT</tt>, but that
+   * everything written to it will be compressed with gzip.  You only need
+   * this if the file's name doesn't end with <tt>".gz"</tt>; an
+   * <tt>OUTPUT</tt> file with a name like that is always compressed.
+   */
+  public static final int GZIP_OUTPUT = 5;
+
+  /**
+   * Like <tt>GZIP_INPUT</tt>, but for files compressed in the zlib
+   * ("deflate") format, which usually have names ending in <tt>".zz"</tt>
+   * or <tt>".deflate"</tt>.  An <tt>INPUT</tt> file with one of those names
+   * is always uncompressed as it's read.
+   */
+  public static final int DEFLATE_INPUT = 6;
+
+  /**
+   * Like <tt>GZIP_OUTPUT</tt>, but compresses in the zlib ("deflate")
+   * format.  An <tt>OUTPUT</tt> file whose name ends in <tt>".zz"</tt> or
+   * <tt>".deflate"</tt> is always compressed this way.
+   */
+  public static final int DEFLATE_OUTPUT = 7;
+
+  /**
+   * Constant for use in the TextFile constructor, meaning that the new file
+   * will be an output file for writing, like <tt>TextFile.OUTPUT</tt>, but
+   * that another thread does the actual writing.  Printing just puts the
+   * characters in a queue, so your program doesn't wait for the disk.  Each
+   * line goes into the queue in one piece when it's finished (a line you
+   * haven't finished yet waits until you do, or until the file is closed).
+   * What happens when the queue is full is up to <tt>setWhenFull</tt>;
+   * <tt>getQueueDepth</tt> and <tt>getDroppedCount</tt> tell you how it's
+   * keeping up.  For this kind of file <tt>flush</tt> waits until every
+   * line finished so far is safely on the disk.
+   */
+  public static final int ASYNC_OUTPUT = 8;
+
+  /**
+   * Constant for use in the TextFile constructor, meaning that the new file
+   * will be an output file for writing, like <tt>TextFile.OUTPUT</tt>, that
+   * several threads can print to at once.  Each thread's lines are collected
+   * separately and passed on to the file a batch of whole lines at a time,
+   * so lines from different threads never get mixed up with each other and
+   * the threads hardly ever have to wait for each other.  The lines from
+   * one thread stay in order, but the file may have a batch from one thread
+   * and then a batch from another.  <tt>flush</tt> passes on the lines the
+   * calling thread has finished.  The flush policy works the same way: each
+   * thread's lines are passed on when that thread prints, so with
+   * <tt>FLUSH_TIMED</tt> the last few lines (up to about 8000 characters)
+   * of a thread that has stopped printing wait until it calls
+   * <tt>flush</tt> or the file is closed.  Make sure the other threads have
+   * stopped printing before you close the file; anything they printed is
+   * written then.
+   */
+  public static final int SHARED_OUTPUT = 9;
+
+  /**
+   * Constant for <tt>setWhenFull</tt>, meaning that printing to an
+   * <tt>ASYNC_OUTPUT</tt> file waits for room when its queue is full.  This
+   * is the default.
+   */
+  public static final int BLOCK_WHEN_FULL = 0;
+
+  /**
+   * Constant for <tt>setWhenFull</tt>, meaning that a line printed to an
+   * <tt>ASYNC_OUTPUT</tt> file is thrown away if there isn't room for it in
+   * the queue.  Lines are always kept or thrown away whole, never in part.
+   * <tt>getDroppedCount</tt> tells you how many were lost.
+   */
+  public static final int DROP_WHEN_FULL = 1;
+
+  /**
+   * Constant for <tt>setWhenFull</tt>, meaning that an <tt>ASYNC_OUTPUT</tt>
+   * file's queue gets bigger whenever it's full.
+   */
+  public static final int GROW_WHEN_FULL = 2;
+
+  /**
+   * Constant for <tt>setFlushPolicy</tt>, meaning that an output file only
+   * writes what you've printed when its buffer is full, when you call
+   * <tt>flush</tt>, and when you close it.  This is the fastest policy and
+   * the default for output files.
+   */
+  public static final int FLUSH_ON_CLOSE = 0;
+
+  /**
+   * Constant for <tt>setFlushPolicy</tt>, meaning that an output file also
+   * writes what you've printed at the end of every line.
+   */
+  public static final int FLUSH_ON_NEWLINE = 1;
+
+  /**
+   * Constant for <tt>setFlushPolicy</tt>, meaning that an output file also
+   * writes what you've printed if it has been longer than the flush interval
+   * (see <tt>setFlushInterval</tt>) since it last did.  This is checked each
+   * time you print something.
+   */
+  public static final int FLUSH_TIMED = 2;
+
+  /**
+   * Constant for <tt>setFlushPolicy</tt>, meaning that an output file writes
+   * everything as soon as you print it.  This is the slowest policy, and the
+   * default for <tt>SCREEN</tt> so that it works just like System.out.
+   */
+  public static final int FLUSH_ALWAYS = 3;
+
+  /**
+   * Character class for <tt>setCharClass</tt> and <tt>getCharClass</tt>:
+   * white space, which separates words and numbers.  To start with this is
+   * blanks, tabs and newlines.
+   */
+  public static final int WHITE_SPACE = 1;
+
+  /**
+   * Character class for <tt>setCharClass</tt> and <tt>getCharClass</tt>:
+   * the delimiters that separate numbers for <tt>nextInt</tt>,
+   * <tt>nextDouble</tt> and <tt>readInts</tt> (see
+   * <tt>setDelimiters</tt>).  To start with this is just a comma.
+   */
+  public static final int DELIMITER = 2;
+
+  // Default number and size (in characters) of the PREFETCH_INPUT buffers
+  private static final int PREFETCH_BUFFERS = 4;
+  private static final int PREFETCH_BUFFER_SIZE = 65536;
+
+  // Default size (in characters) of an ASYNC_OUTPUT file's queue
+  private static final int ASYNC_QUEUE_SIZE = 1 << 20;
+
   // This object does all the real work. It's either an InputFileObject or an
   // OutputFileObject. The only reason for the indirection is to make it
   // possible to use regular constuctors instead of a static "factory" method 
@@ -72,13 +324,114 @@ public class TextFile {
    * @param fileName the name of the file -- may be an absolute name
    *   ("c:/Java/Assignment 1/inputfile.txt") or a simple name
    *   ("inputfile.txt"). Simple names will be found in the same
-   *   folder as your program (.java) files.
+   *   folder as your program (.java) files.  If the name ends in
+   *   ".gz" (or ".zz" or ".deflate") the file is compressed:
+   *   see <tt>GZIP_INPUT</tt> and <tt>GZIP_OUTPUT</tt>.
    */
   public TextFile(boolean mode, String fileName) {
-    if (mode == INPUT)
+    int compressed = compressedMode(fileName, mode);
+    if (compressed != 0)
+      fileObj = openCompressed(fileName, compressed);
+    else if (mode == INPUT)
       fileObj = new InputFileObject(fileName);
     else
       fileObj = new OutputFileObject(fileName);
+    watch();
+  } // end constructor
+
+  /**
+   * Creates a new TextFile object for reading from or writing to a file, using
+   * one of the special modes.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file can't be opened, if you attempt to read from
+   * an input file which does not exist, or if the mode isn't one of the
+   * constants below.
+   * 
+   * @param mode how the file will be used.  Use one of the constants
+   *   <tt>TextFile.MAPPED_INPUT</tt>, <tt>TextFile.PREFETCH_INPUT</tt>,
+   *   <tt>TextFile.GZIP_INPUT</tt>, <tt>TextFile.GZIP_OUTPUT</tt>,
+   *   <tt>TextFile.DEFLATE_INPUT</tt>, <tt>TextFile.DEFLATE_OUTPUT</tt>,
+   *   <tt>TextFile.ASYNC_OUTPUT</tt> or <tt>TextFile.SHARED_OUTPUT</tt>.
+   * @param fileName the name of the file, as for the other constructor
+   */
+  public TextFile(int mode, String fileName) {
+    switch (mode) {
+      case MAPPED_INPUT:
+        fileObj = new InputFileObject(fileName, openMapped(fileName), true);
+        break;
+      case PREFETCH_INPUT:
+        fileObj = new InputFileObject(fileName, 
+          openPrefetched(fileName, PREFETCH_BUFFERS, PREFETCH_BUFFER_SIZE), true);
+        break;
+      case GZIP_INPUT:
+      case GZIP_OUTPUT:
+      case DEFLATE_INPUT:
+      case DEFLATE_OUTPUT:
+        fileObj = openCompressed(fileName, mode);
+        break;
+      case ASYNC_OUTPUT:
+        fileObj = openAsync(fileName, ASYNC_QUEUE_SIZE);
+        break;
+      case SHARED_OUTPUT:
+        fileObj = openShared(fileName);
+        break;
+      default:
+        abort("Error: " + mode + " is not a TextFile mode");
+    } // end switch
+    watch();
+  } // end constructor
+
+  /**
+   * Creates a new TextFile object for writing to a file with
+   * <tt>TextFile.ASYNC_OUTPUT</tt>, choosing how many characters can wait
+   * in the queue for the writing thread.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file can't be opened, if the mode isn't
+   * <tt>TextFile.ASYNC_OUTPUT</tt>, or if the queue size is less than 1.
+   * 
+   * @param mode use <tt>TextFile.ASYNC_OUTPUT</tt>
+   * @param fileName the name of the file, as for the other constructors
+   * @param queueSize how many characters the queue holds
+   */
+  public TextFile(int mode, String fileName, int queueSize) {
+    if (mode != ASYNC_OUTPUT)
+      abort("Error: " + mode + " is not a TextFile mode with a queue size");
+    if (queueSize < 1 || queueSize > 1 << 30)
+      abort("Error: can't make a queue of " + queueSize + " characters");
+    fileObj = openAsync(fileName, queueSize);
+    watch();
+  } // end constructor
+
+  /**
+   * Creates a new TextFile object for reading from a file with
+   * <tt>TextFile.PREFETCH_INPUT</tt>, choosing how far ahead to read.  The
+   * other thread can be up to <tt>bufferCount</tt> buffers of
+   * <tt>bufferSize</tt> characters ahead of your program.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error message if the file doesn't exist or can't be read, if the mode
+   * isn't <tt>TextFile.PREFETCH_INPUT</tt>, or if there are fewer than 2
+   * buffers or they're empty.
+   * 
+   * @param mode use <tt>TextFile.PREFETCH_INPUT</tt>
+   * @param fileName the name of the file, as for the other constructors
+   * @param bufferCount how many buffers to read into
+   * @param bufferSize how many characters each buffer holds
+   */
+  public TextFile(int mode, String fileName, int bufferCount, int bufferSize) {
+    if (mode != PREFETCH_INPUT)
+      abort("Error: " + mode + " is not a TextFile mode with buffer sizes");
+    if (bufferCount < 2 || bufferSize < 1)
+      abort("Error: can't read ahead with " + bufferCount + " buffers of "
+        + bufferSize + " characters");
+    fileObj = new InputFileObject(fileName, 
+      openPrefetched(fileName, bufferCount, bufferSize), true);
+    watch();
   } // end constructor
 
   // special constructor for creating an object for reading from the standard
@@ -88,8 +441,15 @@ public class TextFile {
       fileObj = new InputFileObject();
     else
       fileObj = new OutputFileObject();
+    watch();
   } // end constructor
 
+  // Starts keeping statistics for the file, if we're keeping them
+  private void watch() {
+    if (STATS)
+      fileObj.stats = Stats.register(fileObj);
+  } // end watch
+
   /**
    * Reads a single character from the (input) file. Does not skip
    * whitespace characters.
@@ -136,6 +496,35 @@ public class TextFile {
      return fileObj.readWord();
    } // end readWord
 
+  /**
+   * Reads the next word from the (input) file, like <tt>readWord</tt>, but
+   * without copying it into a new String.  The word you get back is a
+   * view of the characters still in the file's buffer, and it is the
+   * same WordView object every time: it changes to the next word as soon
+   * as you read anything else from the file.  This makes counting words
+   * in a big file much faster, because no Strings are made for words you
+   * don't keep.
+   * <p>
+   * A WordView has the same <tt>hashCode</tt> as a String holding the same
+   * characters, and <tt>equals</tt> is true for such a String, so you can
+   * look a word up in a <tt>HashMap</tt> whose keys are Strings.  If you
+   * need to keep the word, call <tt>toString</tt> or <tt>intern</tt>.
+   * <p>
+   * <b>Example:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+   * <tt>Integer count = counts.get(file.nextWordView());</tt>
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an output file, or if we have already reached the end of
+   * the file.
+   * 
+   * @return the word read from the file, valid until the next read
+   */
+   public WordView nextWordView() {
+     return fileObj.nextWordView();
+   } // end nextWordView
+
    /**
     * Reads an integer from the (input) file. It skips any whitespace
     * characters, reads the next "word" and converts it to an integer.
@@ -151,6 +540,182 @@ public class TextFile {
      return fileObj.readInt();
    } // end readInt
 
+   /**
+    * Reads a long integer from the (input) file. It skips any whitespace
+    * characters, reads the next "word" and converts it to a long.  Use this
+    * instead of <tt>readInt</tt> for numbers that might be too big for an
+    * int.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, if we have already reached the end of
+    * the file, or if the next word is not in legal integer format
+    * 
+    * @return the long integer read from the file
+    */
+   public long readLong() {
+     return fileObj.readLong();
+   } // end readLong
+
+   /**
+    * Sets the delimiters for the (input) file: the characters that can
+    * separate numbers for <tt>nextInt</tt>, <tt>nextDouble</tt> and
+    * <tt>readInts</tt>, as well as white space. The delimiters start out
+    * as just a comma, so those methods can read lists like
+    * <tt>"46, 14, 27, "</tt> without any set-up.  The other read methods
+    * (<tt>readInt</tt>, <tt>readWord</tt> etc.) are not affected.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>setDelimiters(",;")</tt> lets numbers be separated by commas or
+    * semicolons.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, or if a delimiter isn't one of the
+    * first 256 Unicode characters.
+    * 
+    * @param delimiters all of the delimiter characters, in one string
+    */
+   public void setDelimiters(String delimiters) {
+     fileObj.setDelimiters(delimiters);
+   } // end setDelimiters
+
+   /**
+    * Changes which class some characters belong to in the (input) file.
+    * The classes are <tt>WHITE_SPACE</tt> and <tt>DELIMITER</tt>; a
+    * character can belong to both (add the constants together) or to
+    * neither (use 0).  The
+    * <tt>WHITE_SPACE</tt> characters are the ones that <tt>skipWhiteSpace</tt>
+    * skips and that end a word for <tt>readWord</tt>, <tt>nextWordView</tt>,
+    * <tt>readInt</tt>, <tt>readLong</tt> and <tt>readDouble</tt>.
+    * <tt>lines</tt>, <tt>words</tt> and <tt>chars</tt> are not affected.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>setCharClass(".;:!?", TextFile.WHITE_SPACE)</tt> makes
+    * <tt>readWord</tt> leave punctuation out of words.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, or if one of the characters isn't one
+    * of the first 256 Unicode characters.
+    * 
+    * @param chars the characters to change, in one string
+    * @param charClass the class (or classes) they now belong to
+    */
+   public void setCharClass(String chars, int charClass) {
+     fileObj.setCharClass(chars, charClass);
+   } // end setCharClass
+
+   /**
+    * Tells you which class a character belongs to in the (input) file (see
+    * <tt>setCharClass</tt>).  Characters past the first 256 Unicode
+    * characters don't belong to any class.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>if ((file.getCharClass(ch) &amp; TextFile.DELIMITER) != 0) ...</tt>
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @param ch the character to look up
+    * @return its classes added together, or 0 if it has none
+    */
+   public int getCharClass(char ch) {
+     return fileObj.getCharClass(ch);
+   } // end getCharClass
+
+   /**
+    * Checks whether the next thing in the (input) file is an integer,
+    * skipping any white space and delimiters before it.  Doesn't read the
+    * integer; use <tt>nextInt</tt> for that.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return true if there's another integer to read
+    */
+   public boolean hasNextInt() {
+     return fileObj.hasNextInt();
+   } // end hasNextInt
+
+   /**
+    * Reads an integer from the (input) file, skipping any white space and
+    * delimiters (see <tt>setDelimiters</tt>) before it.  The integer ends
+    * at the next white space or delimiter character.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, if we have already reached the end of
+    * the file, or if the next item is not in legal integer format
+    * 
+    * @return the integer read from the file
+    */
+   public int nextInt() {
+     return fileObj.nextInt();
+   } // end nextInt
+
+   /**
+    * Checks whether the next thing in the (input) file is a double,
+    * skipping any white space and delimiters before it.  Doesn't read the
+    * double; use <tt>nextDouble</tt> for that.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return true if there's another double to read
+    */
+   public boolean hasNextDouble() {
+     return fileObj.hasNextDouble();
+   } // end hasNextDouble
+
+   /**
+    * Reads a double from the (input) file, skipping any white space and
+    * delimiters (see <tt>setDelimiters</tt>) before it.  The double ends
+    * at the next white space or delimiter character.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, if we have already reached the end of
+    * the file, or if the next item is not in legal double format
+    * 
+    * @return the double read from the file
+    */
+   public double nextDouble() {
+     return fileObj.nextDouble();
+   } // end nextDouble
+
+   /**
+    * Reads integers from the (input) file into an array, exactly as if you
+    * had called <tt>nextInt</tt> for each of them, until the array is full
+    * or there's nothing left but white space and delimiters.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>int[] numbers = new int[1000];</tt> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>int count;</tt> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>while ((count = file.readInts(numbers)) &gt; 0) { ... }</tt>
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, or if something other than white
+    * space and delimiters isn't in legal integer format
+    * 
+    * @param numbers the array to put the integers in
+    * @return how many integers were read; 0 means we got to the end of
+    *   the file
+    */
+   public int readInts(int[] numbers) {
+     return fileObj.readInts(numbers);
+   } // end readInts
+
    /**
     * Reads a double from the (input) file. It skips any whitespace
     * characters, reads the next "word" and converts it to a double.
@@ -168,7 +733,8 @@ public class TextFile {
 
    /**
     * Skips "white space" in the (input) file. White space characters are
-    * blanks, tabs and newlines. This method throws away white space characters
+    * blanks, tabs and newlines, unless you change them with
+    * <tt>setCharClass</tt>. This method throws away white space characters
     * from the input until it reaches either a non-white character or the end
     * of the file. It's not an error to call this method when you're already at
     * the end of the file.
@@ -195,95 +761,340 @@ public class TextFile {
    } // end eof
 
    /**
-    * Checks to see if the char is either an upper or lower case letter.
-    * @param c The char to check
-    * @return Whether or not it is a letter.
+    * Reads characters from the (input) file into part of an array, exactly as
+    * if you had called <tt>readChar</tt> once for each of them.  Stops when
+    * it has read <tt>len</tt> characters or reaches the end of the file.  This
+    * is much faster than calling <tt>readChar</tt> and <tt>eof</tt> for each
+    * character when you want to go through a whole file.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>char[] chars = new char[4096];</tt> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>int count;</tt> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>while ((count = file.readChars(chars, 0, chars.length)) &gt; 0) { ... }</tt>
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @param chars the array to put the characters in
+    * @param off where in the array to put the first character
+    * @param len the most characters to read
+    * @return the number of characters read, which is less than <tt>len</tt>
+    *   only if we reached the end of the file, or -1 if we were already at
+    *   the end of the file
     */
-   public static boolean isLetter(char c){
-       int intC = (int) c;
-       return (intC >= 'A' && intC <= 'Z') || (intC >= 'a' && intC <= 'z');
-   }
+   public int readChars(char[] chars, int off, int len) {
+     return fileObj.readChars(chars, off, len);
+   } // end readChars
 
    /**
-    * Writes a single character to the (output) file, followed by an
-    * end-of-line character.
+    * Reads characters from the (input) file into a CharBuffer, filling the
+    * space between its position and its limit.  Works the same way as
+    * <tt>readChars(char[], int, int)</tt>.  The buffer's position is moved
+    * past the characters read.
     * <p>
     * <b>Errors:</b> <br>
     * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
-    * error if this is an input file.
+    * error if this is an output file.
     * 
-    * @param c the character to write
+    * @param chars the buffer to put the characters in
+    * @return the number of characters read, or -1 if we were already at
+    *   the end of the file
     */
-   public void println(char c) {
-     fileObj.println(c);
-   } // end println
+   public int readChars(CharBuffer chars) {
+     if (chars.hasArray()) {
+       int count = fileObj.readChars(chars.array(),
+         chars.arrayOffset() + chars.position(), chars.remaining());
+       if (count > 0)
+         chars.position(chars.position() + count);
+       return count;
+     } // end if
+     char[] block = new char[Math.min(chars.remaining(), 8192)];
+     int total = 0;
+     while (chars.hasRemaining()) {
+       int count = fileObj.readChars(block, 0,
+         Math.min(block.length, chars.remaining()));
+       if (count < 0)
+         break;
+       chars.put(block, 0, count);
+       total += count;
+     } // end while
+     if (total == 0 && chars.remaining() > 0)
+       return -1;
+     return total;
+   } // end readChars
 
    /**
-    * Writes a string to the (output file), followed by an end-of-line
-    * character. 
+    * Reads everything that's left in the (input) file.  The array is sized
+    * from the length of the file, so the characters are only copied once.
+    * It's not an error to call this method when you're already at the end
+    * of the file; you just get an empty array.
     * <p>
     * <b>Errors:</b> <br>
     * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
-    * error if this is an input file.
+    * error if this is an output file, or if the file is too big to fit in
+    * an array.
     * 
-    * @param s the string to write
+    * @return the rest of the characters in the file
     */
-   public void println(String s) {
-     fileObj.println(s);
-   } // end println
+   public char[] readAll() {
+     return fileObj.readAll();
+   } // end readAll
 
-  /**
-   * Writes a string to the (output) file, using a specified minimum width,
-   * followed by an end-of-line character.
-   * If the string is shorter than the width, it is padded on the left with
-   * blanks.
-   * <p>
-   * <b>Errors:</b> <br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
-   * error if this is an input file.
-   * 
-   * @param s     the string to write
-   * @param width the minimum width
-   */
-  public void println(String s, int width) {
-    fileObj.println(s, width);
-  } // end print
-  
-  /**
-   * Writes an integer to the (output) file, followed by an end-of-line
-   * character.
-   * <p>
-   * <b>Errors:</b> <br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
-   * error if this is an input file.
-   * 
-   * @param i the integer to write
-   */
-   public void println(int i) {
-     fileObj.println(i);
-   } // end println
+   /**
+    * Returns the rest of the lines in the (input) file as a Stream, so you
+    * can work on them with stream methods instead of a loop.  Each line is
+    * what <tt>readLine</tt> would have returned.  If you haven't read
+    * anything from a file yet, the stream can split the file into pieces
+    * for <tt>.parallel()</tt>, so that several processors work on it at
+    * once.
+    * <p>
+    * The stream takes over the file: afterwards <tt>eof()</tt> is true.
+    * Closing the TextFile (or the stream) frees the file.
+    * <p>
+    * <b>Example:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+    * <tt>long longLines = file.lines().parallel().filter(l -&gt; l.length() &gt; 80).count();</tt>
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return a stream of the lines in the file
+    */
+   public Stream<String> lines() {
+     return fileObj.lines();
+   } // end lines
 
-  /**
-   * Writes an integer to the (output) file, using a specified minimum width,
-   * followed by an end-of-line character. If the integer has fewer than the
-   * specified number of digits, it is padded on the left with blanks. If the
-   * integer has more than the specified number of digits, the minimum width
-   * is disregarded and the full integer is printed.
-   * <p>
-   * <p>
-   * <b>Example:</b> <br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
-   * <tt>println(1234,5)</tt> will print <tt>" 12345"</tt> <br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
-   * <tt>println(1234,3)</tt> will print <tt>"1234"</tt>.
-   * 
-   * <p>
-   * <b>Errors:</b> <br>
-   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
-   * error if this is an input file.
-   * 
-   * @param i the integer to write
-   * @param width the minimum number of output characters to write; the method
+   /**
+    * Returns the rest of the words in the (input) file as a Stream.  Each
+    * word is what <tt>readWord</tt> would have returned.  Works like
+    * <tt>lines</tt>, including being able to run in parallel.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return a stream of the words in the file
+    */
+   public Stream<String> words() {
+     return lines().flatMap(line -> WORD_SEPARATOR.splitAsStream(line)
+       .filter(word -> word.length() > 0));
+   } // end words
+
+   /**
+    * Returns the rest of the characters in the (input) file as an IntStream.
+    * Each character is what <tt>readChar</tt> would have returned, including
+    * a '\n' at the end of every line.  Works like <tt>lines</tt>, including
+    * being able to run in parallel.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return a stream of the characters in the file
+    */
+   public IntStream chars() {
+     return lines().flatMapToInt(line -> 
+       IntStream.concat(line.chars(), IntStream.of('\n')));
+   } // end chars
+
+   /**
+    * Tells you how many times so far your program had to wait for a
+    * <tt>PREFETCH_INPUT</tt> file, because the reading-ahead thread hadn't
+    * got far enough yet.  If this is a big part of the number of buffers
+    * read, reading ahead isn't keeping up with your program.  Always 0 for
+    * other kinds of input files.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file.
+    * 
+    * @return the number of times reading had to wait
+    */
+   public long getStallCount() {
+     return fileObj.getStallCount();
+   } // end getStallCount
+
+   /**
+    * Makes an index of where every line in the (input) file starts, so that
+    * <tt>readLine(n)</tt> and <tt>seekLine(n)</tt> can go straight to any
+    * line.  The index is built by several threads at once, one for each part
+    * of the file.  If there's an up-to-date index saved next to the file (see
+    * <tt>saveLineIndex</tt>) that's used instead.  Calling this when there's
+    * already an index does nothing.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an output file, if it isn't a file on disk (such as
+    * the keyboard), or if the default character set isn't one where line
+    * breaks can be found byte by byte (UTF-8, ISO-8859-1 or US-ASCII).
+    */
+   public void buildLineIndex() {
+     fileObj.buildLineIndex();
+   } // end buildLineIndex
+
+   /**
+    * Saves the line index in a file next to the (input) file, with
+    * <tt>".lineindex"</tt> added to its name, so that another program (or
+    * the next run of this one) doesn't have to build it again.  The saved
+    * index is only used while the file stays the same size and has the
+    * same modification time.  Builds the index first if necessary.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if the index can't be built (see <tt>buildLineIndex</tt>) or the
+    * index file can't be written.
+    */
+   public void saveLineIndex() {
+     fileObj.saveLineIndex();
+   } // end saveLineIndex
+
+   /**
+    * Tells you how many lines there are in the (input) file, counting a last
+    * line that doesn't end with a line break.  Builds the line index first
+    * if necessary.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if the index can't be built (see <tt>buildLineIndex</tt>).
+    * 
+    * @return the number of lines in the file
+    */
+   public int getLineCount() {
+     return fileObj.getLineCount();
+   } // end getLineCount
+
+   /**
+    * Reads line number <tt>n</tt> from the (input) file, counting the first
+    * line as line 0.  This doesn't change where <tt>readLine()</tt>,
+    * <tt>readChar()</tt> and the other read methods are up to.  Builds the
+    * line index first if necessary; after that, reading any line takes the
+    * same (short) time.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if the index can't be built (see <tt>buildLineIndex</tt>) or
+    * there is no line <tt>n</tt>.
+    * 
+    * @param n the number of the line to read
+    * @return the line (minus the ending '\n')
+    */
+   public String readLine(int n) {
+     return fileObj.readLine(n);
+   } // end readLine
+
+   /**
+    * Moves to the start of line number <tt>n</tt> in the (input) file,
+    * counting the first line as line 0, so that the next <tt>readLine()</tt>
+    * (or <tt>readChar()</tt> etc.) reads from there.  Builds the line index
+    * first if necessary.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if the index can't be built (see <tt>buildLineIndex</tt>) or
+    * there is no line <tt>n</tt>.  (Moving to line <tt>getLineCount()</tt>
+    * is allowed and takes you to the end of the file.)
+    * 
+    * @param n the number of the line to move to
+    */
+   public void seekLine(int n) {
+     fileObj.seekLine(n);
+   } // end seekLine
+
+   /**
+    * Checks to see if the char is either an upper or lower case letter.
+    * @param c The char to check
+    * @return Whether or not it is a letter.
+    */
+   public static boolean isLetter(char c){
+       int intC = (int) c;
+       return (intC >= 'A' && intC <= 'Z') || (intC >= 'a' && intC <= 'z');
+   }
+
+   /**
+    * Writes a single character to the (output) file, followed by an
+    * end-of-line character.
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an input file.
+    * 
+    * @param c the character to write
+    */
+   public void println(char c) {
+     fileObj.println(c);
+   } // end println
+
+   /**
+    * Writes a string to the (output file), followed by an end-of-line
+    * character. 
+    * <p>
+    * <b>Errors:</b> <br>
+    * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+    * error if this is an input file.
+    * 
+    * @param s the string to write
+    */
+   public void println(String s) {
+     fileObj.println(s);
+   } // end println
+
+  /**
+   * Writes a string to the (output) file, using a specified minimum width,
+   * followed by an end-of-line character.
+   * If the string is shorter than the width, it is padded on the left with
+   * blanks.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @param s     the string to write
+   * @param width the minimum width
+   */
+  public void println(String s, int width) {
+    fileObj.println(s, width);
+  } // end print
+  
+  /**
+   * Writes an integer to the (output) file, followed by an end-of-line
+   * character.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @param i the integer to write
+   */
+   public void println(int i) {
+     fileObj.println(i);
+   } // end println
+
+  /**
+   * Writes an integer to the (output) file, using a specified minimum width,
+   * followed by an end-of-line character. If the integer has fewer than the
+   * specified number of digits, it is padded on the left with blanks. If the
+   * integer has more than the specified number of digits, the minimum width
+   * is disregarded and the full integer is printed.
+   * <p>
+   * <p>
+   * <b>Example:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+   * <tt>println(1234,5)</tt> will print <tt>" 12345"</tt> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+   * <tt>println(1234,3)</tt> will print <tt>"1234"</tt>.
+   * 
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @param i the integer to write
+   * @param width the minimum number of output characters to write; the method
    * will add spaces at the beginning if necessary to make this
    * number of characters.
    */
@@ -594,6 +1405,181 @@ public class TextFile {
     fileObj.print(obj);
   } // end print
 
+  /**
+   * Writes a row of integers to the (output) file, each one padded with
+   * spaces on the left to the given width, followed by an end-of-line
+   * character.  Does the same as calling <tt>print(value, width)</tt> for
+   * each value and then <tt>println()</tt>, but faster.
+   * <p>
+   * <b>Examples:</b><br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+   * <tt>printRow(new int[] {1, 22, 333}, 4)</tt> prints 
+   * <tt>"   1  22 333"</tt>.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @param values the numbers to write
+   * @param width the minimum number of characters for each number
+   */
+  public void printRow(int[] values, int width) {
+    fileObj.printRow(values, width);
+  } // end printRow
+
+  /**
+   * Writes a row of doubles to the (output) file, each one with the given
+   * precision and width (see <tt>print(double, int, int)</tt>), followed by
+   * an end-of-line character.  Does the same as calling 
+   * <tt>print(value, width, precision)</tt> for each value and then
+   * <tt>println()</tt>, but faster.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @param values the numbers to write
+   * @param width the minimum number of characters for each number
+   * @param precision the number of digits after the decimal point
+   */
+  public void printRow(double[] values, int width, int precision) {
+    fileObj.printRow(values, width, precision);
+  } // end printRow
+
+  /**
+   * Writes a table of doubles to the (output) file, where each array is a
+   * column: the first line has the first number from each column, the
+   * second line the second number from each, and so on.  Each number is
+   * written with the given precision and width, as for <tt>printRow</tt>.
+   * <p>
+   * <b>Examples:</b><br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+   * <tt>printColumns(new double[][] {{1, 2}, {0.5, 0.25}}, 6, 2)</tt>
+   * prints <tt>"  1.00  0.50"</tt> and <tt>"  2.00  0.25"</tt>.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file or the columns aren't all the same
+   * length.
+   * 
+   * @param columns the columns of numbers to write
+   * @param width the minimum number of characters for each number
+   * @param precision the number of digits after the decimal point
+   */
+  public void printColumns(double[][] columns, int width, int precision) {
+    fileObj.printColumns(columns, width, precision);
+  } // end printColumns
+
+  /**
+   * Makes sure everything printed to the (output) file so far has really been
+   * written to it, instead of waiting in the file's buffer.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file or the file can't be written.
+   */
+  public void flush() {
+    fileObj.flush();
+  } // end flush
+
+  /**
+   * Chooses when the (output) file writes what you've printed to it.  Output
+   * is collected in a buffer and written in big blocks, which is much faster
+   * than writing each thing as it's printed, but means the file doesn't
+   * show everything until it's closed.  Use one of the constants
+   * <tt>TextFile.FLUSH_ON_CLOSE</tt> (the default for files),
+   * <tt>TextFile.FLUSH_ON_NEWLINE</tt>, <tt>TextFile.FLUSH_TIMED</tt> or
+   * <tt>TextFile.FLUSH_ALWAYS</tt> (the default for <tt>SCREEN</tt>).
+   * Whatever the policy, anything still in an output file's buffer is
+   * written when the program ends.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file or the policy isn't one of the constants.
+   * 
+   * @param policy when to write
+   */
+  public void setFlushPolicy(int policy) {
+    fileObj.setFlushPolicy(policy);
+  } // end setFlushPolicy
+
+  /**
+   * Sets how often a <tt>FLUSH_TIMED</tt> (output) file writes what you've
+   * printed, and switches the file to <tt>FLUSH_TIMED</tt>.  The interval
+   * starts out as one second.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file or the interval is negative.
+   * 
+   * @param milliseconds the longest time printed output should wait
+   */
+  public void setFlushInterval(int milliseconds) {
+    fileObj.setFlushInterval(milliseconds);
+  } // end setFlushInterval
+
+  /**
+   * Sets how many characters the (output) file collects before it writes
+   * them (unless the flush policy writes them sooner).  The size starts out
+   * as 65536.  Anything already in the buffer is written first.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file or the size is less than 1.
+   * 
+   * @param size the buffer size, in characters
+   */
+  public void setBufferSize(int size) {
+    fileObj.setBufferSize(size);
+  } // end setBufferSize
+
+  /**
+   * Chooses what printing to an <tt>ASYNC_OUTPUT</tt> file does when the
+   * queue for the writing thread is full.  Use one of the constants
+   * <tt>TextFile.BLOCK_WHEN_FULL</tt> (the default),
+   * <tt>TextFile.DROP_WHEN_FULL</tt> or <tt>TextFile.GROW_WHEN_FULL</tt>.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this isn't an <tt>ASYNC_OUTPUT</tt> file or the policy isn't
+   * one of the constants.
+   * 
+   * @param policy what to do when the queue is full
+   */
+  public void setWhenFull(int policy) {
+    fileObj.setWhenFull(policy);
+  } // end setWhenFull
+
+  /**
+   * Tells you how many characters printed to an <tt>ASYNC_OUTPUT</tt> file
+   * are waiting in its queue for the writing thread.  Always 0 for other
+   * kinds of output files.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @return the number of characters in the queue
+   */
+  public int getQueueDepth() {
+    return fileObj.getQueueDepth();
+  } // end getQueueDepth
+
+  /**
+   * Tells you how many lines printed to an <tt>ASYNC_OUTPUT</tt> file have
+   * been thrown away because the queue was full (see
+   * <tt>DROP_WHEN_FULL</tt>).  Always 0 for other kinds of output files.
+   * <p>
+   * <b>Errors:</b> <br>
+   * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp; Will abort with an
+   * error if this is an input file.
+   * 
+   * @return the number of lines lost
+   */
+  public long getDroppedCount() {
+    return fileObj.getDroppedCount();
+  } // end getDroppedCount
+
   /**
    * Closes the file when you're done using it. It's important to remember to
    * do this to free system resources associated with the file and to make
@@ -602,6 +1588,8 @@ public class TextFile {
    */
   public void close() {
     fileObj.close();
+    if (fileObj.stats != null)
+      fileObj.stats.unregister();
   } // end close
     
   /**
@@ -611,6 +1599,14 @@ public class TextFile {
    * @param msg the message to print before ending the program execution
    */
   public static void abort(String msg) {
+    if (recording()) {
+      AbortEvent event = new AbortEvent();
+      if (event.shouldCommit()) {
+        event.message = msg;
+        event.commit();
+      } // end if
+    } // end if
+    SCREEN.fileObj.flush();
     System.out.println(msg);
     System.exit(1);
   } // end abort
@@ -636,10 +1632,12 @@ public class TextFile {
    * @return the string with spaces inserted on the left as needed
    */
   private static String padLeft(String str, int width) {
-    String result = str;
-    while (result.length() < width) 
-      result = " " + result;
-      return result;    
+    if (str.length() >= width)
+      return str;
+    StringBuilder result = new StringBuilder(width);
+    for (int i = str.length(); i < width; i++)
+      result.append(' ');
+    return result.append(str).toString();
   } // end padLeft
     
   /**
@@ -683,11 +1681,11 @@ public class TextFile {
    * @return the double value as a string, formatted as specified
    */
   private static String formatDouble(double value, int width, int precision) {
-    String formatString = "0.";
-    for (int i = 0; i < precision; i++)
-      formatString += "0";
-    DecimalFormat pattern = new DecimalFormat(formatString);
-    String formatted = pattern.format(value);
+    DecimalFormat pattern = NumberFormats.current().pattern(precision);
+    String formatted;
+    synchronized (pattern) {
+      formatted = pattern.format(value);
+    } // end synchronized
     return padLeft(formatted, width);
   } // end formatDouble
   
@@ -704,24 +1702,308 @@ public class TextFile {
   } // end formatDouble
     
 
+  // Number of characters Integer.toString(value) would return
+  private static int intLength(int value) {
+    if (value == Integer.MIN_VALUE)
+      return 11;
+    int length = 1;
+    if (value < 0) {
+      length++;
+      value = -value;
+    } // end if
+    for (value /= 10; value != 0; value /= 10)
+      length++;
+    return length;
+  } // end intLength
+
+  /**
+   * Works out value * 10^precision rounded to a whole number, ignoring the
+   * sign, the same way DecimalFormat would with <tt>precision</tt> digits
+   * after the point.  DecimalFormat rounds the digits Double.toString would
+   * give; we work with the exact binary value instead, so we only answer
+   * when the two can't disagree: the exact value isn't within an ulp of
+   * halfway between two results.  Returns -1 when it can't say (not
+   * finite, too big, too tiny, too close to a tie) and DecimalFormat has
+   * to do it.
+   */
+  private static long scaleDouble(double value, int precision) {
+    if (precision >= LONG_POWERS_OF_TEN.length)
+      return -1;
+    long bits = Double.doubleToRawLongBits(value);
+    int exponent = (int) (bits >>> 52) & 0x7ff;
+    long mantissa = bits & 0xfffffffffffffL;
+    if (exponent == 0)
+      return mantissa == 0 ? 0 : -1;
+    // |value| = mantissa * 2^-shift
+    mantissa |= 1L << 52;
+    int shift = 1075 - exponent;
+    if (shift < 0 || shift > 126)
+      return -1;
+    long power = LONG_POWERS_OF_TEN[precision];
+    long high = Math.multiplyHigh(mantissa, power);
+    long low = mantissa * power;
+    if (shift == 0)
+      return high != 0 || low < 0 ? -1 : low;
+
+    // Split the 128-bit product (high, low) into the whole part and the
+    // bits shifted out, and find halfway for the bits shifted out.
+    long whole, restHigh, restLow, halfHigh, halfLow;
+    if (shift < 64) {
+      if (high >>> (shift - 1) != 0)
+        return -1;
+      whole = (high << (64 - shift)) | (low >>> shift);
+      restHigh = 0;
+      restLow = low & ((1L << shift) - 1);
+      halfHigh = 0;
+      halfLow = 1L << (shift - 1);
+    } 
+    else if (shift == 64) {
+      whole = high;
+      restHigh = 0;
+      restLow = low;
+      halfHigh = 0;
+      halfLow = Long.MIN_VALUE;
+    } 
+    else {
+      whole = high >>> (shift - 64);
+      restHigh = high & ((1L << (shift - 64)) - 1);
+      restLow = low;
+      halfHigh = 1L << (shift - 65);
+      halfLow = 0;
+    } // end if
+
+    // distance from halfway; one ulp of value is power in these units
+    long diffLow = restLow - halfLow;
+    long diffHigh = restHigh - halfHigh 
+      - (Long.compareUnsigned(restLow, halfLow) < 0 ? 1 : 0);
+    boolean below = diffHigh < 0;
+    if (below) {
+      diffHigh = ~diffHigh + (diffLow == 0 ? 1 : 0);
+      diffLow = -diffLow;
+    } // end if
+    if (diffHigh == 0 && Long.compareUnsigned(diffLow, power) <= 0)
+      return -1;
+    if (below)
+      return whole;
+    return whole == Long.MAX_VALUE ? -1 : whole + 1;
+  } // end scaleDouble
+
+  /*
+   * The characters DecimalFormat uses for the current locale, and a
+   * DecimalFormat for each precision we've been asked for (these used to
+   * be made afresh for every number printed).  If the default locale
+   * changes, we start over.
+   */
+  private static final class NumberFormats {
+    private static volatile NumberFormats current;
+
+    final Locale locale;
+    final char zeroDigit;
+    final char decimalSeparator;
+    final String minusPrefix;
+    // false if the locale puts anything else around numbers, so we leave
+    // it all to DecimalFormat
+    final boolean plain;
+    private final DecimalFormat[] patterns = new DecimalFormat[32];
+
+    private NumberFormats(Locale locale) {
+      this.locale = locale;
+      DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+      zeroDigit = symbols.getZeroDigit();
+      decimalSeparator = symbols.getDecimalSeparator();
+      DecimalFormat format = pattern(0);
+      minusPrefix = format.getNegativePrefix();
+      plain = format.getPositivePrefix().isEmpty() 
+        && format.getPositiveSuffix().isEmpty() 
+        && format.getNegativeSuffix().isEmpty();
+    } // end constructor
+
+    static NumberFormats current() {
+      Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+      NumberFormats formats = current;
+      if (formats == null || !formats.locale.equals(locale))
+        current = formats = new NumberFormats(locale);
+      return formats;
+    } // end current
+
+    // "0." followed by precision zeros
+    DecimalFormat pattern(int precision) {
+      if (precision < 0)
+        precision = 0;
+      if (precision >= patterns.length)
+        return makePattern(precision);
+      synchronized (patterns) {
+        if (patterns[precision] == null)
+          patterns[precision] = makePattern(precision);
+        return patterns[precision];
+      } // end synchronized
+    } // end pattern
+
+    private DecimalFormat makePattern(int precision) {
+      StringBuilder formatString = new StringBuilder("0.");
+      for (int i = 0; i < precision; i++)
+        formatString.append('0');
+      return new DecimalFormat(formatString.toString(), 
+        DecimalFormatSymbols.getInstance(locale));
+    } // end makePattern
+  } // end class NumberFormats
+
+  // What separates the words in a line, used by words()
+  private static final Pattern WORD_SEPARATOR = Pattern.compile("[ \t]+");
+
+  // Powers of ten that fit in a long, used for printing doubles
+  private static final long[] LONG_POWERS_OF_TEN = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+    1000000000L, 10000000000L, 100000000000L, 1000000000000L, 
+    10000000000000L, 100000000000000L, 1000000000000000L, 
+    10000000000000000L, 100000000000000000L, 1000000000000000000L
+  };
+
+  // Powers of ten that a double holds exactly, used for reading doubles
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
   /***************************************************************************
-   * The inner class FileObject does all the real work. A FileObject is either
-   * an InputFileObject for reading or an OutputFileObject for writing.
+   * Helper methods for opening the different kinds of input file.  These
+   * are used by the constructors.
    **************************************************************************/
-  private abstract class FileObject {
-    // the name of the file
-    protected String fileName;
 
-    // All methostringds are abstract. InputFileObject implements the read methods
-    // and aborts if the write methods are called. OutputFileObject
-    // implements the write methods and aborts if the read methods are called. See the
-    // top-level TextFile methods for descriptions of the functionality,
-    // parameters, etc.
-    public abstract String readLine();
+  // Opens a file for MAPPED_INPUT and returns a reader for its characters.
+  private static Reader openMapped(String fileName) {
+    try {
+      return new MappedReader(new RandomAccessFile(fileName, "r").getChannel());
+    } 
+    catch (FileNotFoundException e) {
+      abort("Error: input file \"" + fileName + "\" does not exist");
+    } 
+    catch (IOException e) {
+      abort("I/O error while reading from file \"" + fileName + "\"");
+    } // end try
+    return null; // keep compiler happy
+  } // end openMapped
+
+  // Returns the compressed mode that goes with the file name's extension
+  // for an INPUT or OUTPUT file, or 0 if it isn't a compressed file name.
+  private static int compressedMode(String fileName, boolean mode) {
+    String name = fileName.toLowerCase();
+    if (name.endsWith(".gz"))
+      return mode == INPUT ? GZIP_INPUT : GZIP_OUTPUT;
+    if (name.endsWith(".zz") || name.endsWith(".deflate"))
+      return mode == INPUT ? DEFLATE_INPUT : DEFLATE_OUTPUT;
+    return 0;
+  } // end compressedMode
+
+  // Opens a compressed file.  For input, the file is uncompressed (and the
+  // characters decoded) by a PrefetchReader's thread, which keeps a few
+  // buffers ahead of the program.
+  private FileObject openCompressed(String fileName, int mode) {
+    try {
+      switch (mode) {
+        case GZIP_INPUT:
+          return new InputFileObject(fileName, new PrefetchReader(
+            new InputStreamReader(new GZIPInputStream(
+              new FileInputStream(fileName), 65536)),
+            fileName, PREFETCH_BUFFERS, PREFETCH_BUFFER_SIZE), false);
+        case DEFLATE_INPUT:
+          return new InputFileObject(fileName, new PrefetchReader(
+            new InputStreamReader(new InflaterInputStream(
+              new FileInputStream(fileName), new Inflater(), 65536)),
+            fileName, PREFETCH_BUFFERS, PREFETCH_BUFFER_SIZE), false);
+        case GZIP_OUTPUT:
+          return new OutputFileObject(fileName, 
+            new GZIPOutputStream(new FileOutputStream(fileName), 65536));
+        default: // DEFLATE_OUTPUT
+          return new OutputFileObject(fileName, 
+            new DeflaterOutputStream(new FileOutputStream(fileName), 
+              new Deflater(), 65536));
+      } // end switch
+    } 
+    catch (FileNotFoundException e) {
+      if (mode == GZIP_INPUT || mode == DEFLATE_INPUT)
+        abort("Error: input file \"" + fileName + "\" does not exist");
+      else
+        abort("Error: can't open file \"" + fileName + "\" for writing");
+    } 
+    catch (IOException e) {
+      abort("Error: \"" + fileName + "\" is not a compressed file");
+    } // end try
+    return null; // keep compiler happy
+  } // end openCompressed
+
+  // Opens a file for ASYNC_OUTPUT.
+  private FileObject openAsync(String fileName, int queueSize) {
+    try {
+      return new AsyncOutputFileObject(fileName, 
+        new FileOutputStream(fileName), queueSize);
+    } 
+    catch (FileNotFoundException e) {
+      abort("Error: can't open file \"" + fileName + "\" for writing");
+      return null; // keep compiler happy
+    } // end try
+  } // end openAsync
+
+  // Opens a file for SHARED_OUTPUT.
+  private FileObject openShared(String fileName) {
+    try {
+      return new SharedOutputFileObject(fileName, new FileOutputStream(fileName));
+    } 
+    catch (FileNotFoundException e) {
+      abort("Error: can't open file \"" + fileName + "\" for writing");
+      return null; // keep compiler happy
+    } // end try
+  } // end openShared
+
+  // Opens a file for PREFETCH_INPUT and returns a reader for its characters.
+  private static Reader openPrefetched(String fileName, int bufferCount,
+      int bufferSize) {
+    try {
+      return new PrefetchReader(new FileReader(fileName), fileName, 
+        bufferCount, bufferSize);
+    } 
+    catch (FileNotFoundException e) {
+      abort("Error: input file \"" + fileName + "\" does not exist");
+      return null; // keep compiler happy
+    } // end try
+  } // end openPrefetched
+
+  /***************************************************************************
+   * The inner class FileObject does all the real work. A FileObject is either
+   * an InputFileObject for reading or an OutputFileObject for writing.
+   **************************************************************************/
+  private abstract class FileObject {
+    // the name of the file
+    protected String fileName;
+
+    // statistics, if we're keeping them (see watch)
+    Stats stats;
+
+    // How many bytes have been read from the file, or -1 if we can't tell
+    long bytesRead() {
+      return -1;
+    } // end bytesRead
+
+    // All methostringds are abstract. InputFileObject implements the read methods
+    // and aborts if the write methods are called. OutputFileObject
+    // implements the write methods and aborts if the read methods are called. See the
+    // top-level TextFile methods for descriptions of the functionality,
+    // parameters, etc.
+    public abstract String readLine();
     public abstract String readWord();
+    public abstract WordView nextWordView();
     public abstract void skipWhiteSpace();
     public abstract char readChar();
     public abstract int readInt();          
+    public abstract long readLong();
+    public abstract void setDelimiters(String delimiters);
+    public abstract void setCharClass(String chars, int charClass);
+    public abstract int getCharClass(char ch);
+    public abstract boolean hasNextInt();
+    public abstract int nextInt();
+    public abstract boolean hasNextDouble();
+    public abstract double nextDouble();
+    public abstract int readInts(int[] numbers);
     public abstract double readDouble();
     public abstract void println(String s);
     public abstract void println(String s, int width);
@@ -744,42 +2026,139 @@ public class TextFile {
     public abstract void print(double d, int width, int precision);
     public abstract void print(boolean b);
     public abstract void print(Object obj);
+    public abstract void printRow(int[] values, int width);
+    public abstract void printRow(double[] values, int width, int precision);
+    public abstract void printColumns(double[][] columns, int width, 
+      int precision);
     public abstract void close();
+    public abstract void flush();
+    public abstract void setFlushPolicy(int policy);
+    public abstract void setFlushInterval(int milliseconds);
+    public abstract void setBufferSize(int size);
+    public abstract void setWhenFull(int policy);
+    public abstract int getQueueDepth();
+    public abstract long getDroppedCount();
     public abstract boolean eof();
+    public abstract int readChars(char[] chars, int off, int len);
+    public abstract char[] readAll();
+    public abstract Stream<String> lines();
+    public abstract long getStallCount();
+    public abstract void buildLineIndex();
+    public abstract void saveLineIndex();
+    public abstract int getLineCount();
+    public abstract String readLine(int n);
+    public abstract void seekLine(int n);
   } // end class FileObject
 
   /***************************************************************************
-   * An InputFileObject implements an input file, using the BufferedReader
-   * class.
+   * An InputFileObject implements an input file.  It reads large blocks of
+   * characters from a Reader into a char array and then hands them out one
+   * at a time by moving an index through the array.
    **************************************************************************/
   private class InputFileObject extends FileObject {
-    // The reader that does the real work.
-    private BufferedReader reader;
+    // Number of characters we try to read from the file at once.
+    private static final int BLOCK_SIZE = 65536;
+
+    // The reader that does the real work.  We read whole blocks from it
+    // ourselves, so it doesn't need to be a BufferedReader.
+    private Reader reader;
+
+    // Read-ahead; buffer[pos] .. buffer[limit-1] have been read from the
+    // file but not returned yet.  By the time characters are in the buffer,
+    // line endings ("\r\n", "\r" or "\n") have all been turned into '\n'.
+    private char[] buffer = new char[BLOCK_SIZE];
+    private int pos = 0;
+    private int limit = 0;
 
-    // Read-ahead; these characters have not been returned yet.
-    // When we reach the end of the input file, buffer is set to null.
-    private StringBuffer buffer = new StringBuffer();
+    // True once the reader has told us there's nothing left in the file.
+    private boolean readerDone = false;
+
+    // with STATS, the channel under a plain file's reader
+    private FileChannel statsChannel;
+
+    // True if the last character we got from the reader was a '\r', so
+    // that a '\n' right after it is part of the same line ending.
+    private boolean skipLF = false;
+
+    // The last character put into the buffer.  Every line used to come
+    // back with a '\n' on the end, even a last line that doesn't have
+    // one in the file, so we remember this to supply the missing '\n'.
+    private char lastChar = '\n';
 
     // Value returned by private function to denote end of file.
     private static final int EOF_VALUE = -1;
 
+    // What class each of the first CLASS_TABLE_SIZE characters is in, as
+    // a combination of WHITE_SPACE and DELIMITER.  Characters past the end
+    // of the table aren't in any class.
+    private static final int CLASS_TABLE_SIZE = 256;
+    private static final int SEPARATOR = WHITE_SPACE | DELIMITER;
+    private byte[] charClass = new byte[CLASS_TABLE_SIZE];
+    {
+      charClass[' '] = charClass['\t'] = charClass['\n'] = WHITE_SPACE;
+      charClass[','] = DELIMITER;
+    }
+
+    // What nextWordView returns, made the first time it's needed
+    private WordView wordView;
+
+    // Where the number parsing methods leave their answers
+    private long parsedLong;
+    private double parsedDouble;
+
     // True if this file is the standard input (so that we won't
     // try to close it!)
     private boolean standardInput = false;
 
+    // True if the characters come straight from a file on disk in the
+    // default character set, so that lines() can split it up by position
+    private boolean plainFile = false;
+
+    // The channel a lines() stream is reading from, if there is one
+    private FileChannel linesChannel;
+
+    // Where in the file (in bytes) the reader started.  Only changes when
+    // seekLine moves the reader.
+    private long startOffset = 0;
+
+    // The line index and the channel readLine(n) reads from, once
+    // buildLineIndex has been called
+    private LineIndex lineIndex;
+    private FileChannel indexChannel;
+
     public InputFileObject(String fileName) {
       this.fileName = fileName;
+      plainFile = true;
       try {
-        reader = new BufferedReader(new FileReader(fileName));
+        if (STATS) {
+          // the same as a FileReader, but we can ask where it's up to
+          FileInputStream in = new FileInputStream(fileName);
+          statsChannel = in.getChannel();
+          reader = new InputStreamReader(in);
+        } 
+        else
+          reader = new FileReader(fileName);
       } 
       catch (FileNotFoundException e) {
         abort("Error: input file \"" + fileName + "\" does not exist");
       }
     } // end constructor
 
+    // For the special modes, where the TextFile constructor has already
+    // opened the file.  plainFile is true if the reader is reading the
+    // file's bytes in order in the default character set.
+    public InputFileObject(String fileName, Reader reader, boolean plainFile) {
+      this.fileName = fileName;
+      this.reader = reader;
+      this.plainFile = plainFile;
+    } // end constructor
+
     public InputFileObject() {
       this.fileName = "standard input";
-      reader = new BufferedReader(new InputStreamReader(System.in));
+      // Read System.in in big blocks, which is much faster when the input
+      // is a file or a pipe rather than a person typing (a person's input
+      // still comes a line at a time).
+      reader = new StandardInputReader();
       standardInput = true;
     } // end constructor
 
@@ -796,56 +2175,129 @@ public class TextFile {
       abort("error: attempt to write to input file \"" + fileName + "\"");
     } // end writeAbort
 
-    // Reads the next character from the input file and returns it as an
-    // int. If we're at the end of the file, returns -1 instead.
-    private int readCharOrEOF() {
-      try {
-        if (buffer == null) { // already hit EOF
-          return EOF_VALUE;
+    // Reads another block from the file and adds it to the buffer after
+    // the characters that are already there (making room first if we
+    // have to).  Returns false if there was nothing more to read.
+    private boolean fill() {
+      if (readerDone)
+        return false;
+      if (pos == limit) {
+        pos = limit = 0;
+      } 
+      else if (limit == buffer.length) {
+        if (pos > 0) {
+          System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+          limit -= pos;
+          pos = 0;
         } 
-        else if (buffer.length() == 0) {
-          String newLine = reader.readLine();
-          if (newLine == null)
-            return EOF_VALUE;
-          else {
-            buffer.append(newLine);
-            buffer.append('\n');
-          } // end if
+        else {
+          char[] bigger = new char[buffer.length * 2];
+          System.arraycopy(buffer, 0, bigger, 0, limit);
+          buffer = bigger;
         } // end if
-
-        // If we get here, the buffer is not null or length 0, so return
-        // the next character
-        char result = buffer.charAt(0);
-        buffer.deleteCharAt(0);
-        return result;
+      } // end if
+      RefillEvent event = recording() ? new RefillEvent() : null;
+      if (event != null)
+        event.begin();
+      long started = STATS ? System.nanoTime() : 0;
+      try {
+        int oldLimit = limit;
+        while (limit == oldLimit) {
+          int count = reader.read(buffer, limit, buffer.length - limit);
+          if (count < 0) {
+            readerDone = true;
+            if (lastChar != '\n') {
+              buffer[limit++] = '\n';
+              lastChar = '\n';
+            } // end if
+            refilled(event, started, oldLimit);
+            return limit > oldLimit;
+          } // end if
+          limit = fixLineEndings(limit, count);
+        } // end while
+        refilled(event, started, oldLimit);
+        return true;
       } // end try
       catch (IOException e) {
         errorAbort();
-        return ' '; // keep compiler happy
+        return false; // keep compiler happy
       } // end catch
+    } // end fill
+
+    // Reports a refill that added buffer[start] .. buffer[limit-1]
+    private void refilled(RefillEvent event, long started, int start) {
+      if (event != null && event.shouldCommit()) {
+        event.fileName = fileName;
+        event.chars = limit - start;
+        event.commit();
+      } // end if
+      if (stats != null)
+        stats.refilled(System.nanoTime() - started, buffer, start, limit);
+    } // end refilled
+
+    long bytesRead() {
+      if (reader instanceof ByteBlockReader)
+        return ((ByteBlockReader) reader).bytesRead;
+      if (statsChannel != null) {
+        try {
+          return statsChannel.position();
+        } 
+        catch (IOException e) {
+          return -1;
+        } // end try
+      } // end if
+      return -1;
+    } // end bytesRead
+
+    // Turns the line endings in the count characters starting at
+    // buffer[start] into single '\n' characters, moving the characters
+    // down over any '\r' we drop.  Returns the new end of the buffer.
+    private int fixLineEndings(int start, int count) {
+      int end = start + count;
+      int out = start;
+      for (int i = start; i < end; i++) {
+        char ch = buffer[i];
+        if (skipLF) {
+          skipLF = false;
+          if (ch == '\n')
+            continue;
+        } // end if
+        if (ch == '\r') {
+          ch = '\n';
+          skipLF = true;
+        } // end if
+        buffer[out++] = ch;
+      } // end for
+      if (out > start)
+        lastChar = buffer[out - 1];
+      return out;
+    } // end fixLineEndings
+
+    // Reads the next character from the input file and returns it as an
+    // int. If we're at the end of the file, returns -1 instead.
+    private int readCharOrEOF() {
+      if (pos == limit && !fill())
+        return EOF_VALUE;
+      return buffer[pos++];
     } // end readCharOrEOF
 
     // Pushes a character back onto the input stream.  Used when we
-    // read a character we're not ready to send to the user.
+    // read a character we're not ready to send to the user.  Normally
+    // that's the character we just read, so we only have to back up.
     private void pushChar(char ch) {
-      if (buffer == null)
-        buffer = new StringBuffer(ch);
-      else
-        buffer.insert(0, ch);
+      if (pos == 0) {
+        if (limit == buffer.length) {
+          char[] bigger = new char[buffer.length * 2];
+          System.arraycopy(buffer, 0, bigger, 0, limit);
+          buffer = bigger;
+        } // end if
+        System.arraycopy(buffer, 0, buffer, 1, limit);
+        limit++;
+        pos = 1;
+      } // end if
+      buffer[--pos] = ch;
     } // end pushChar
 
-    // Returns true if ch is a "whitespace" character
-    private boolean isWhite(char ch) {
-      switch (ch) {
-        case ' ':
-        case '\t':
-        case '\n':
-          return true;
-        default:
-          return false;
-      } // end switch
-    } // end isWhite
-
     /* ***********************************************************************
      * PUBLIC METHODS
      * 
@@ -853,94 +2305,551 @@ public class TextFile {
      * of functionality, parameters, etc.
      * ***********************************************************************/
     public boolean eof() {
-      int nextChar = readCharOrEOF();
-      if (nextChar == EOF_VALUE)
-        return true;
-      else {
-        pushChar((char) nextChar);
-        return false;
-      } // end if
+      return pos == limit && !fill();
     } // end eof
 
     public void skipWhiteSpace() {
-      char ch = ' ';
+      skipClasses(WHITE_SPACE);
+    } // end skipWhiteSpace
+
+    // Steps pos past any characters in the given classes.  Each block in
+    // the buffer is scanned with the buffer, table and limit in locals, and
+    // pos is only stored once per block.
+    private void skipClasses(int classes) {
       while (true) {
-        if (eof()) {
-          buffer = null;
-          return;
-        } 
-        else if (!isWhite(ch)) {
-          pushChar(ch);
+        char[] chars = buffer;
+        byte[] table = charClass;
+        int i = pos;
+        int end = limit;
+        while (i < end) {
+          char ch = chars[i];
+          if (ch >= CLASS_TABLE_SIZE || (table[ch] & classes) == 0)
+            break;
+          i++;
+        } // end while
+        pos = i;
+        if (i < end || !fill())
           return;
-        } 
-        else
-          // we just read a whitespace character, so keep going
-          ch = readChar();
       } // end while
-    } // end skipWhiteSpace
+    } // end skipClasses
+
+    // Makes sure all of the word starting at pos is in the buffer (reading
+    // more of the file if we have to) and returns the index just past its
+    // end.  Doesn't move pos.
+    private int scanWord() {
+      return scanUntil(WHITE_SPACE);
+    } // end scanWord
+
+    // Like scanWord, but the word ends at a character in any of the given
+    // classes.  Scans block by block, like skipClasses.
+    private int scanUntil(int classes) {
+      int end = pos;
+      while (true) {
+        char[] chars = buffer;
+        byte[] table = charClass;
+        int stop = limit;
+        while (end < stop) {
+          char ch = chars[end];
+          if (ch < CLASS_TABLE_SIZE && (table[ch] & classes) != 0)
+            return end;
+          end++;
+        } // end while
+        int length = end - pos;
+        if (!fill())
+          return limit;
+        end = pos + length; // fill may have moved the word down
+      } // end while
+    } // end scanUntil
 
     public String readWord() {
-      // skip white space, then read and accumulate characters
-      // until non white space character or eof
-      StringBuffer word = new StringBuffer();
+      // skip white space, then take characters until a white space
+      // character or eof
       skipWhiteSpace();
       if (eof()) 
         eofAbort();
-      while (true) {
-        if (eof())
-          return word.toString();
-        char ch = readChar();
-        if (isWhite(ch)) {
-          pushChar(ch);
-          return word.toString();
-        } else {
-          word.append(ch);
-        } // end if
-      } // end while
+      int end = scanWord();
+      String word = new String(buffer, pos, end - pos);
+      pos = end;
+      return word;
     } // end readWord
 
+    public WordView nextWordView() {
+      skipWhiteSpace();
+      if (eof()) 
+        eofAbort();
+      int end = scanWord();
+      if (wordView == null)
+        wordView = new WordView();
+      wordView.set(buffer, pos, end - pos);
+      pos = end;
+      return wordView;
+    } // end nextWordView
+
     public String readLine() {
       if (eof())
         eofAbort();
-      // read and accumulate characters until end of line or end of file
-      StringBuffer newLine = new StringBuffer();
-      int newChar = readCharOrEOF();
-      while (newChar != '\n' && newChar != EOF_VALUE) {
-        newLine.append((char) newChar);
-        newChar = readCharOrEOF();
+      // collect characters until end of line or end of file, then
+      // step over the '\n'
+      // (the scan uses locals rather than pos and limit, so the loop
+      // doesn't store to a field for every character)
+      StringBuilder newLine = null;
+      char[] chars = buffer;
+      int start = pos;
+      int i = start;
+      int end = limit;
+      while (true) {
+        while (i < end && chars[i] != '\n')
+          i++;
+        if (i < end)
+          break;
+        if (newLine == null)
+          newLine = new StringBuilder();
+        newLine.append(chars, start, i - start);
+        pos = i;
+        if (!fill())
+          return newLine.toString();
+        chars = buffer;
+        start = i = pos;
+        end = limit;
       } // end while
-      return newLine.toString();
+      String result;
+      if (newLine == null)
+        result = new String(chars, start, i - start);
+      else
+        result = newLine.append(chars, start, i - start).toString();
+      pos = i + 1; // the '\n'
+      return result;
     } // end readLine
 
     public char readChar() {
-      int ch = readCharOrEOF();
-      if (ch == EOF_VALUE)
+      if (pos == limit && !fill())
         eofAbort();
-      return (char) ch;
+      return buffer[pos++];
     } // end readChar
     
-    public int readInt() {
-      String intWord = readWord();
+    // Works out the whole number in buffer[start] .. buffer[end-1] and
+    // puts it in parsedLong.  Returns false if it isn't a legal int (or
+    // long if wantLong is true).  Plain digits with an optional sign are
+    // worked out right in the buffer.  Anything else (including numbers
+    // with too many digits to be sure they fit) is handed to parseInt or
+    // parseLong as a String, so that we accept exactly what they accept.
+    private boolean parseWholeNumber(int start, int end, boolean wantLong) {
+      int i = start;
+      boolean negative = buffer[i] == '-';
+      if (negative || buffer[i] == '+')
+        i++;
+      boolean simple = i < end && end - i <= 18;
+      long value = 0;
+      for (; simple && i < end; i++) {
+        int digit = buffer[i] - '0';
+        if (digit < 0 || digit > 9)
+          simple = false;
+        else
+          value = value * 10 + digit;
+      } // end for
+      if (negative)
+        value = -value;
+      if (simple && (wantLong 
+          || (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE))) {
+        parsedLong = value;
+        return true;
+      } // end if
+
+      String word = new String(buffer, start, end - start);
       try {
-        return Integer.parseInt(intWord);
+        if (wantLong)
+          parsedLong = Long.parseLong(word);
+        else
+          parsedLong = Integer.parseInt(word);
+        return true;
       } // end try
       catch (NumberFormatException e) {
-        abort("error: \"" + intWord + "\" is not a legal integer");
-        return 0; // keep compiler happy
+        return false;
       } // end catch
-    } // end readInt
+    } // end parseWholeNumber
+
+    // Works out the double in buffer[start] .. buffer[end-1] and puts it in
+    // parsedDouble.  Returns false if it isn't a legal double.
+    private boolean parseDouble(int start, int end) {
+      // The usual case is digits, maybe a decimal point and an exponent.
+      // If there aren't too many digits, they make a long exactly, and we
+      // can get the right double with one multiply or divide by an exact
+      // power of ten.  Anything harder goes to parseDouble as a String.
+      int i = start;
+      boolean negative = buffer[i] == '-';
+      if (negative || buffer[i] == '+')
+        i++;
+      long digits = 0;
+      int digitCount = 0;     // digits in "digits", not counting leading zeros
+      int fractionDigits = 0; // how many of the digits came after the '.'
+      boolean sawDigit = false;
+      boolean sawPoint = false;
+      boolean simple = true;
+      for (; i < end; i++) {
+        char ch = buffer[i];
+        if (ch >= '0' && ch <= '9') {
+          sawDigit = true;
+          if (digits != 0 || ch != '0')
+            digitCount++;
+          digits = digits * 10 + (ch - '0');
+          if (sawPoint)
+            fractionDigits++;
+        } 
+        else if (ch == '.' && !sawPoint)
+          sawPoint = true;
+        else
+          break;
+      } // end for
+      int exponent = 0;
+      if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+        i++;
+        boolean negativeExponent = i < end && buffer[i] == '-';
+        if (i < end && (negativeExponent || buffer[i] == '+'))
+          i++;
+        int expStart = i;
+        for (; i < end && i - expStart < 4; i++) {
+          int digit = buffer[i] - '0';
+          if (digit < 0 || digit > 9)
+            break;
+          exponent = exponent * 10 + digit;
+        } // end for
+        if (i == expStart)
+          simple = false;
+        if (negativeExponent)
+          exponent = -exponent;
+      } // end if
+      exponent -= fractionDigits;
+      simple = simple && sawDigit && i == end && digitCount <= 18 
+        && digits <= (1L << 53) && exponent >= -22 && exponent <= 22;
+      if (simple) {
+        double value = digits;
+        if (exponent > 0)
+          value *= POWERS_OF_TEN[exponent];
+        else if (exponent < 0)
+          value /= POWERS_OF_TEN[-exponent];
+        parsedDouble = negative ? -value : value;
+        return true;
+      } // end if
 
-    public double readDouble() {
-      String doubleWord = readWord();
       try {
-        return Double.parseDouble(doubleWord);
+        parsedDouble = Double.parseDouble(new String(buffer, start, end - start));
+        return true;
       } // end try
       catch (NumberFormatException e) {
-        abort("error: \"" + doubleWord + "\" is not a legal double");
-        return 0; // keep compiler happy
+        return false;
       } // end catch
+    } // end parseDouble
+
+    // Reads the next word as a whole number, or aborts if it isn't one
+    // that fits in an int (or a long if wantLong is true).
+    private long readWholeNumber(boolean wantLong) {
+      skipWhiteSpace();
+      if (eof()) 
+        eofAbort();
+      int end = scanWord();
+      if (!parseWholeNumber(pos, end, wantLong))
+        abort("error: \"" + new String(buffer, pos, end - pos) 
+          + "\" is not a legal integer");
+      pos = end;
+      return parsedLong;
+    } // end readWholeNumber
+
+    public int readInt() {
+      return (int) readWholeNumber(false);
+    } // end readInt
+
+    public long readLong() {
+      return readWholeNumber(true);
+    } // end readLong
+
+    public double readDouble() {
+      skipWhiteSpace();
+      if (eof()) 
+        eofAbort();
+      int end = scanWord();
+      if (!parseDouble(pos, end))
+        abort("error: \"" + new String(buffer, pos, end - pos) 
+          + "\" is not a legal double");
+      pos = end;
+      return parsedDouble;
     } // end readDouble
 
+    /* Scanner methods.  These are like readInt and readDouble, except that
+     * the numbers can be separated by the delimiter characters as well as
+     * by white space. */
+
+    // Skips white space and delimiters.
+    private void skipDelimiters() {
+      skipClasses(SEPARATOR);
+    } // end skipDelimiters
+
+    // Like scanWord, but the token also stops at a delimiter.
+    private int scanToken() {
+      return scanUntil(SEPARATOR);
+    } // end scanToken
+
+    public void setDelimiters(String delimiters) {
+      for (int ch = 0; ch < CLASS_TABLE_SIZE; ch++)
+        charClass[ch] &= ~DELIMITER;
+      for (int i = 0; i < delimiters.length(); i++) {
+        char ch = delimiters.charAt(i);
+        if (ch >= CLASS_TABLE_SIZE)
+          abort("Error: \"" + ch + "\" can't be used as a delimiter");
+        charClass[ch] |= DELIMITER;
+      } // end for
+    } // end setDelimiters
+
+    public void setCharClass(String chars, int classes) {
+      if ((classes & ~SEPARATOR) != 0)
+        abort("Error: " + classes + " is not a character class");
+      for (int i = 0; i < chars.length(); i++) {
+        char ch = chars.charAt(i);
+        if (ch >= CLASS_TABLE_SIZE)
+          abort("Error: \"" + ch + "\" can't be given a character class");
+        charClass[ch] = (byte) classes;
+      } // end for
+    } // end setCharClass
+
+    public int getCharClass(char ch) {
+      return ch < CLASS_TABLE_SIZE ? charClass[ch] : 0;
+    } // end getCharClass
+
+    public boolean hasNextInt() {
+      skipDelimiters();
+      if (eof())
+        return false;
+      int end = scanToken(); // may move the token, so before using pos
+      return parseWholeNumber(pos, end, false);
+    } // end hasNextInt
+
+    public int nextInt() {
+      skipDelimiters();
+      if (eof()) 
+        eofAbort();
+      int end = scanToken();
+      if (!parseWholeNumber(pos, end, false))
+        abort("error: \"" + new String(buffer, pos, end - pos) 
+          + "\" is not a legal integer");
+      pos = end;
+      return (int) parsedLong;
+    } // end nextInt
+
+    public boolean hasNextDouble() {
+      skipDelimiters();
+      if (eof())
+        return false;
+      int end = scanToken(); // may move the token, so before using pos
+      return parseDouble(pos, end);
+    } // end hasNextDouble
+
+    public double nextDouble() {
+      skipDelimiters();
+      if (eof()) 
+        eofAbort();
+      int end = scanToken();
+      if (!parseDouble(pos, end))
+        abort("error: \"" + new String(buffer, pos, end - pos) 
+          + "\" is not a legal double");
+      pos = end;
+      return parsedDouble;
+    } // end nextDouble
+
+    public int readInts(int[] numbers) {
+      int count = 0;
+      while (count < numbers.length) {
+        skipDelimiters();
+        if (eof())
+          break;
+        numbers[count++] = nextInt();
+      } // end while
+      return count;
+    } // end readInts
+
+    public int readChars(char[] chars, int off, int len) {
+      if (len == 0)
+        return 0;
+      if (pos == limit && !fill())
+        return EOF_VALUE;
+      int count = 0;
+      while (true) {
+        int n = Math.min(len - count, limit - pos);
+        System.arraycopy(buffer, pos, chars, off + count, n);
+        pos += n;
+        count += n;
+        if (count == len || !fill())
+          return count;
+      } // end while
+    } // end readChars
+
+    public char[] readAll() {
+      // Every character takes at least one byte in the file, so the rest
+      // of the file plus what's already in the buffer (plus a '\n' we
+      // might add at the end) is nearly always enough room.
+      long size = limit - pos + 1;
+      if (!standardInput)
+        size += new File(fileName).length();
+      else
+        size += BLOCK_SIZE;
+      if (size > Integer.MAX_VALUE - 8)
+        abort("Error: input file \"" + fileName + "\" is too big to read all at once");
+      char[] all = new char[(int) size];
+      int count = 0;
+      while (true) {
+        int n = readChars(all, count, all.length - count);
+        if (n <= 0)
+          break;
+        count += n;
+        if (count == all.length) {
+          if (eof())
+            break;
+          if (all.length >= Integer.MAX_VALUE - 8)
+            abort("Error: input file \"" + fileName + "\" is too big to read all at once");
+          all = Arrays.copyOf(all, (int) Math.min(2L * all.length, Integer.MAX_VALUE - 8));
+        } // end if
+      } // end while
+      if (count < all.length)
+        all = Arrays.copyOf(all, count);
+      return all;
+    } // end readAll
+
+    public Stream<String> lines() {
+      // If nothing has been read yet and we can find line breaks by
+      // looking at the bytes, read the file by position so that the
+      // stream can be split up.  Otherwise just call readLine.
+      if (plainFile && limit == 0 && !readerDone 
+          && LineSpliterator.canSplit(Charset.defaultCharset())) {
+        try {
+          linesChannel = FileChannel.open(new File(fileName).toPath());
+          final FileChannel channel = linesChannel;
+          LineSpliterator lines = new LineSpliterator(channel, startOffset, 
+            channel.size(), Charset.defaultCharset());
+          readerDone = true; // the stream has the rest of the file now
+          return StreamSupport.stream(lines, false).onClose(() -> {
+            try {
+              channel.close();
+            } 
+            catch (IOException e) {
+              errorAbort();
+            } // end try
+          });
+        } // end try
+        catch (IOException e) {
+          errorAbort();
+        } // end catch
+      } // end if
+      Spliterator<String> lines = new Spliterators.AbstractSpliterator<String>(
+          Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+        public boolean tryAdvance(Consumer<? super String> action) {
+          if (eof())
+            return false;
+          action.accept(readLine());
+          return true;
+        } // end tryAdvance
+      };
+      return StreamSupport.stream(lines, false);
+    } // end lines
+
+    public long getStallCount() {
+      if (reader instanceof PrefetchReader)
+        return ((PrefetchReader) reader).stalls;
+      return 0;
+    } // end getStallCount
+
+    public void buildLineIndex() {
+      if (lineIndex != null)
+        return;
+      if (!plainFile || !LineSpliterator.canSplit(Charset.defaultCharset()))
+        abort("Error: can't make a line index for \"" + fileName + "\"");
+      File file = new File(fileName);
+      try {
+        indexChannel = FileChannel.open(file.toPath());
+        lineIndex = LineIndex.load(file);
+        if (lineIndex == null)
+          lineIndex = LineIndex.build(indexChannel);
+      } 
+      catch (IOException e) {
+        errorAbort();
+      } // end try
+    } // end buildLineIndex
+
+    public void saveLineIndex() {
+      buildLineIndex();
+      try {
+        lineIndex.save(new File(fileName));
+      } 
+      catch (IOException e) {
+        abort("Error: can't write line index for \"" + fileName + "\"");
+      } // end try
+    } // end saveLineIndex
+
+    public int getLineCount() {
+      buildLineIndex();
+      return lineIndex.lineCount();
+    } // end getLineCount
+
+    // Aborts unless 0 <= n < lineCount (or n == lineCount if endOK)
+    private void checkLineNumber(int n, boolean endOK) {
+      int count = lineIndex.lineCount();
+      if (n < 0 || n > count || (n == count && !endOK))
+        abort("Error: input file \"" + fileName + "\" has no line " + n);
+    } // end checkLineNumber
+
+    public String readLine(int n) {
+      buildLineIndex();
+      checkLineNumber(n, false);
+      long start = lineIndex.offsets[n];
+      int length = (int) (lineIndex.offsets[n + 1] - start);
+      ByteBuffer bytes = ByteBuffer.allocate(length);
+      try {
+        while (bytes.hasRemaining()
+            && indexChannel.read(bytes, start + bytes.position()) >= 0)
+          ;
+      } 
+      catch (IOException e) {
+        errorAbort();
+      } // end try
+      // leave off the line break
+      byte[] line = bytes.array();
+      int end = bytes.position();
+      if (end > 0 && line[end - 1] == '\n')
+        end--;
+      if (end > 0 && line[end - 1] == '\r')
+        end--;
+      return new String(line, 0, end, Charset.defaultCharset());
+    } // end readLine
+
+    public void seekLine(int n) {
+      buildLineIndex();
+      checkLineNumber(n, true);
+      long offset = lineIndex.offsets[n];
+      try {
+        Reader oldReader = reader;
+        if (oldReader instanceof MappedReader)
+          reader = new MappedReader(FileChannel.open(new File(fileName).toPath()), offset);
+        else {
+          FileInputStream in = new FileInputStream(fileName);
+          in.getChannel().position(offset);
+          reader = new InputStreamReader(in);
+          if (statsChannel != null)
+            statsChannel = in.getChannel(); // the old one is closed below
+          if (oldReader instanceof PrefetchReader) {
+            PrefetchReader old = (PrefetchReader) oldReader;
+            reader = new PrefetchReader(reader, fileName, old.bufferCount, 
+              old.bufferSize);
+          } // end if
+        } // end if
+        oldReader.close();
+      } 
+      catch (IOException e) {
+        errorAbort();
+      } // end try
+      startOffset = offset;
+      pos = limit = 0;
+      readerDone = false;
+      skipLF = false;
+      lastChar = '\n';
+    } // end seekLine
+
     public void close() {
       if (standardInput)
         return; // don't close the standard input
@@ -951,10 +2860,45 @@ public class TextFile {
         abort("Error while attempting to close file \"" + fileName
           + "\"");
       }
+      try {
+        if (linesChannel != null)
+          linesChannel.close();
+        if (indexChannel != null)
+          indexChannel.close();
+      } 
+      catch (IOException e) {
+        abort("Error while attempting to close file \"" + fileName
+          + "\"");
+      }
+      pos = limit = 0;
+      readerDone = true;
       fileName = "closed file";
     } // end close
 
     // Calling an output method for an object of this class is an error.
+    public void flush() {
+      writeAbort();
+    } // end flush
+    public void setFlushPolicy(int policy) {
+      writeAbort();
+    } // end setFlushPolicy
+    public void setFlushInterval(int milliseconds) {
+      writeAbort();
+    } // end setFlushInterval
+    public void setBufferSize(int size) {
+      writeAbort();
+    } // end setBufferSize
+    public void setWhenFull(int policy) {
+      writeAbort();
+    } // end setWhenFull
+    public int getQueueDepth() {
+      writeAbort();
+      return 0; // keep compiler happy
+    } // end getQueueDepth
+    public long getDroppedCount() {
+      writeAbort();
+      return 0; // keep compiler happy
+    } // end getDroppedCount
     public void println(String s) {
       writeAbort();
     } // end println
@@ -1018,30 +2962,106 @@ public class TextFile {
     public void print(Object obj) {
       writeAbort();
     } // end print
+    public void printRow(int[] values, int width) {
+      writeAbort();
+    } // end printRow
+    public void printRow(double[] values, int width, int precision) {
+      writeAbort();
+    } // end printRow
+    public void printColumns(double[][] columns, int width, int precision) {
+      writeAbort();
+    } // end printColumns
         
   } // end class InputFileObject
 
+  // Output files that haven't been closed.  Whatever is left in their
+  // buffers is written when the program ends.
+  private static final Set<OutputFileObject> openOutputFiles = 
+    Collections.synchronizedSet(new LinkedHashSet<OutputFileObject>());
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      OutputFileObject[] files;
+      synchronized (openOutputFiles) {
+        files = openOutputFiles.toArray(new OutputFileObject[0]);
+      } // end synchronized
+      for (OutputFileObject file : files)
+        file.flushQuietly();
+    }, "TextFile flush"));
+  }
+
+  // The characters println uses to end a line
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
   /***************************************************************************
-   * An OutputFileObject implements an output file, using the PrintStream
-   * class.
+   * An OutputFileObject implements an output file.  Everything printed is
+   * put into a char array; when that fills up (or the flush policy says
+   * so), the characters are encoded into a byte array and written to the
+   * OutputStream in one go.
    **************************************************************************/
   private class OutputFileObject extends FileObject {
-    // the writer that does the real work
-    private PrintStream writer;
+    // Starting number of characters we collect before writing them.
+    protected static final int BLOCK_SIZE = 65536;
+
+    // where the bytes go
+    protected OutputStream out;
+
+    // Characters printed but not written yet: chars[0] .. chars[count-1]
+    protected char[] chars = new char[BLOCK_SIZE];
+    protected int count = 0;
+
+    // Where characters are encoded, and how.  When the character set
+    // writes the ASCII characters as single bytes (asciiBytes), we encode
+    // those ourselves and only use the encoder for anything else.
+    private byte[] bytes = new byte[BLOCK_SIZE];
+    private final Charset charset = Charset.defaultCharset();
+    private CharsetEncoder encoder;
+    private final boolean asciiBytes = charset.name().equals("UTF-8") 
+      || charset.name().equals("ISO-8859-1") || charset.name().equals("US-ASCII");
+
+    // One of the FLUSH_ constants; for FLUSH_TIMED, how often (in
+    // nanoseconds) and when we last flushed
+    protected int flushPolicy = FLUSH_ON_CLOSE;
+    private long flushInterval = 1000000000L;
+    protected long lastFlush = System.nanoTime();
+
+    // True if this is the standard output (which we never close)
+    private boolean standardOutput = false;
+
+    // True once flushQuietly has started: the program is ending, so write
+    // errors are ignored.  abort would call System.exit, and calling that
+    // from a shutdown hook never returns, so the program would hang.
+    protected volatile boolean quiet = false;
+
+    // True once writing to the file has failed.  flushQuietly leaves such
+    // a file alone: the thread that failed may be aborting, still holding
+    // the file's lock.
+    protected volatile boolean failed = false;
 
     public OutputFileObject(String fileName) {
       this.fileName = fileName;
       try {
-        writer = new PrintStream(new FileOutputStream(fileName));
+        out = new FileOutputStream(fileName);
       } 
       catch (FileNotFoundException e) {
         abort("Error: can't open file \"" + fileName + "\" for writing");
       }
+      openOutputFiles.add(this);
+    } // end constructor
+
+    // for a file the TextFile constructor has already opened (or, if out is
+    // null, for a thread's lines waiting to go to a SHARED_OUTPUT file)
+    public OutputFileObject(String fileName, OutputStream out) {
+      this.fileName = fileName;
+      this.out = out;
+      if (out != null)
+        openOutputFiles.add(this);
     } // end constructor
 
     public OutputFileObject() {
       this.fileName = "standard output";
-      writer = System.out;
+      out = System.out;
+      standardOutput = true;
+      flushPolicy = FLUSH_ALWAYS;
     } // end constructor
 
     // abort with a common error message
@@ -1050,114 +3070,527 @@ public class TextFile {
       + "\"");
     } // end readAbort
 
+    protected void writeErrorAbort() {
+      failed = true;
+      if (!quiet)
+        abort("I/O error while writing to file \"" + fileName + "\"");
+    } // end writeErrorAbort
+
     /* ***********************************************************************
-     * PUBLIC METHODS
-     *  
-     * See header comments in top-level TextFile methods for descriptions
-     * of functionality, parameters, etc.
+     * Putting characters into the buffer.  None of these write anything
+     * unless the buffer fills up.
      * ***********************************************************************/
-    public void println(String s) {
-      print(s);
-      println();
-    } // end println
+    protected void put(char c) {
+      if (count == chars.length)
+        drain(false);
+      chars[count++] = c;
+    } // end put
 
-    public void println(String s, int width) {
-      print(s, width);
-      println();
-    } // end println
+    protected void put(char[] source, int off, int len) {
+      while (len > 0) {
+        if (count == chars.length)
+          drain(false);
+        int n = Math.min(len, chars.length - count);
+        System.arraycopy(source, off, chars, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      } // end while
+    } // end put
 
-    public void println(int i) {
-      print(i);
-      println();
-    } // end println
+    protected void put(String s) {
+      int length = s.length();
+      int done = 0;
+      while (done < length) {
+        if (count == chars.length)
+          drain(false);
+        int n = Math.min(length - done, chars.length - count);
+        s.getChars(done, done + n, chars, count);
+        count += n;
+        done += n;
+      } // end while
+    } // end put
 
-    public void println(int i, int width) {
-      print(i, width);
-      println();
-    } // end println
+    // Makes sure there's room for n more characters in the buffer, making
+    // the buffer bigger if n is more than it holds.
+    protected void reserve(int n) {
+      if (chars.length - count < n) {
+        drain(false);
+        if (chars.length - count < n)
+          chars = Arrays.copyOf(chars, count + n);
+      } // end if
+    } // end reserve
 
-    public void println(double d) {
-      print(d);
-      println();
-    } // end println
+    // Puts the digits of i in the buffer without making a String
+    protected void putInt(int i) {
+      reserve(11);
+      if (i == Integer.MIN_VALUE) {
+        put("-2147483648");
+        return;
+      } // end if
+      if (i < 0) {
+        chars[count++] = '-';
+        i = -i;
+      } // end if
+      int digits = 1;
+      for (int rest = i / 10; rest != 0; rest /= 10)
+        digits++;
+      int at = count + digits;
+      count = at;
+      do {
+        chars[--at] = (char) ('0' + i % 10);
+        i /= 10;
+      } while (i != 0);
+    } // end putInt
 
-    public void println(double d, int width) {
-      print(d, width);
-      println();
-    } // end println
+    // Puts spaces in the buffer (none if n isn't positive)
+    protected void putSpaces(int n) {
+      while (n > 0) {
+        if (count == chars.length)
+          drain(false);
+        int k = Math.min(n, chars.length - count);
+        Arrays.fill(chars, count, count + k, ' ');
+        count += k;
+        n -= k;
+      } // end while
+    } // end putSpaces
 
-    public void println(double d, int width, int precision) {
-      print(d, width, precision);
-      println();
-    } // end println
+    // Like put(padLeft(s, width))
+    protected void putPadded(String s, int width) {
+      putSpaces(width - s.length());
+      put(s);
+    } // end putPadded
 
-    public void println(char c) {
-      print(c);
-      println();
-    } // end println
+    // Like put(formatInt(i, width))
+    protected void putInt(int i, int width) {
+      putSpaces(width - intLength(i));
+      putInt(i);
+    } // end putInt
 
-    public void println(boolean b) {
-      print(b);
-      println();
-    } // end println
+    // Like put(formatDouble(d, width, precision)), but without making any
+    // Strings unless scaleDouble can't handle the number.
+    protected void putDouble(double d, int width, int precision) {
+      putDouble(d, width, precision, NumberFormats.current());
+    } // end putDouble
 
-    public void println(Object obj) {
-      print(obj);
-      println();
+    // The same, with the locale's formats already looked up
+    protected void putDouble(double d, int width, int precision, 
+        NumberFormats formats) {
+      if (precision < 0)
+        precision = 0;
+      long scaled = formats.plain ? scaleDouble(d, precision) : -1;
+      if (scaled < 0) {
+        put(formatDouble(d, width, precision));
+        return;
+      } // end if
+      boolean negative = Double.doubleToRawLongBits(d) < 0;
+      long power = LONG_POWERS_OF_TEN[precision];
+      long whole = scaled / power;
+      long fraction = scaled % power;
+      int wholeDigits = 1;
+      for (long rest = whole / 10; rest != 0; rest /= 10)
+        wholeDigits++;
+      int length = wholeDigits + 1 + precision;
+      if (negative)
+        length += formats.minusPrefix.length();
+      putSpaces(width - length);
+      reserve(length);
+      if (negative)
+        put(formats.minusPrefix);
+      int zero = formats.zeroDigit;
+      for (int at = count + wholeDigits - 1; at >= count; at--) {
+        chars[at] = (char) (zero + (int) (whole % 10));
+        whole /= 10;
+      } // end for
+      count += wholeDigits;
+      chars[count++] = formats.decimalSeparator;
+      for (int at = count + precision - 1; at >= count; at--) {
+        chars[at] = (char) (zero + (int) (fraction % 10));
+        fraction /= 10;
+      } // end for
+      count += precision;
+    } // end putDouble
+
+    // Ends a line, flushing if the policy says to.
+    protected void putLineEnd() {
+      put(LINE_SEPARATOR);
+      if (stats != null)
+        stats.linesWritten.increment();
+      if (flushPolicy == FLUSH_ON_NEWLINE || flushPolicy == FLUSH_ALWAYS)
+        flush();
+      else if (flushPolicy == FLUSH_TIMED)
+        checkTimedFlush();
+    } // end putLineEnd
+
+    // Called at the end of each print method, to flush if the policy says to.
+    protected void printed() {
+      if (flushPolicy == FLUSH_ALWAYS)
+        flush();
+      else if (flushPolicy == FLUSH_TIMED)
+        checkTimedFlush();
+    } // end printed
+
+    private void checkTimedFlush() {
+      if (timeToFlush())
+        flush();
+    } // end checkTimedFlush
+
+    // True if a FLUSH_TIMED file has gone the flush interval without flushing
+    protected boolean timeToFlush() {
+      return System.nanoTime() - lastFlush >= flushInterval;
+    } // end timeToFlush
+
+    /* ***********************************************************************
+     * Writing out the buffer
+     * ***********************************************************************/
+
+    // Writes out the characters in the buffer.  Unless this is the last
+    // time (finished is true), a high surrogate at the very end is kept
+    // back, since its other half hasn't been printed yet.
+    protected void drain(boolean finished) {
+      int n = count;
+      if (!finished && n > 0 && Character.isHighSurrogate(chars[n - 1]))
+        n--;
+      writeChars(chars, 0, n, finished);
+      if (n < count)
+        chars[0] = chars[n];
+      count -= n;
+    } // end drain
+
+    // Encodes some characters and writes the bytes.  finished says these are
+    // the last characters, so an encoder that keeps state between calls
+    // (UTF-16 only writes its byte order mark once, for example) can end.
+    protected void writeChars(char[] source, int off, int len, boolean finished) {
+      if (stats != null)
+        stats.charsWritten.add(len);
+      try {
+        int i = off;
+        int end = off + len;
+        int n = 0; // bytes[0] .. bytes[n-1] are waiting to be written
+        while (i < end) {
+          if (asciiBytes) {
+            int stop = Math.min(end, i + bytes.length - n);
+            while (i < stop && source[i] < 0x80)
+              bytes[n++] = (byte) source[i++];
+            if (n == bytes.length) {
+              writeBytes(n);
+              n = 0;
+              continue;
+            } // end if
+            if (i == end)
+              break;
+          } // end if
+          // Let the encoder do a run of characters (all of them, if the
+          // character set isn't ASCII-friendly).
+          if (encoder == null)
+            encoder = charset.newEncoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+          int runEnd = end;
+          if (asciiBytes) {
+            runEnd = i;
+            while (runEnd < end && source[runEnd] >= 0x80)
+              runEnd++;
+          } // end if
+          CharBuffer in = CharBuffer.wrap(source, i, runEnd - i);
+          ByteBuffer encoded = ByteBuffer.wrap(bytes, n, bytes.length - n);
+          // ASCII-friendly encoders start afresh with each run; the
+          // others carry on until the file is finished.
+          boolean last = asciiBytes || finished;
+          while (encoder.encode(in, encoded, last).isOverflow()) {
+            writeBytes(encoded.position());
+            encoded.clear();
+          } // end while
+          if (last) {
+            while (encoder.flush(encoded).isOverflow()) {
+              writeBytes(encoded.position());
+              encoded.clear();
+            } // end while
+            encoder.reset();
+          } // end if
+          n = encoded.position();
+          i = runEnd;
+        } // end while
+        if (finished && !asciiBytes && encoder != null && len == 0) {
+          // nothing left, but the encoder may still have something to say
+          ByteBuffer encoded = ByteBuffer.wrap(bytes);
+          encoder.encode(CharBuffer.allocate(0), encoded, true);
+          encoder.flush(encoded);
+          n = encoded.position();
+          encoder.reset();
+        } // end if
+        if (n > 0)
+          writeBytes(n);
+      } 
+      catch (IOException e) {
+        writeErrorAbort();
+      } // end try
+    } // end writeChars
+
+    // Writes bytes[0] .. bytes[n-1]
+    private void writeBytes(int n) throws IOException {
+      if (stats == null) {
+        out.write(bytes, 0, n);
+        return;
+      } // end if
+      long started = System.nanoTime();
+      out.write(bytes, 0, n);
+      stats.wrote(n, System.nanoTime() - started);
+    } // end writeBytes
+
+    // Reports a flush
+    protected void flushed(FlushEvent event) {
+      if (event != null && event.shouldCommit()) {
+        event.fileName = fileName;
+        event.commit();
+      } // end if
+      if (stats != null)
+        stats.flushes.increment();
+    } // end flushed
+
+    // Flushes without aborting, for when the program is ending anyway.
+    void flushQuietly() {
+      quiet = true;
+      if (failed)
+        return;
+      drain(true);
+      try {
+        out.flush();
+      } 
+      catch (IOException e) {
+        // too late to do anything about it
+      } // end try
+    } // end flushQuietly
+
+    /* ***********************************************************************
+     * PUBLIC METHODS
+     *  
+     * See header comments in top-level TextFile methods for descriptions
+     * of functionality, parameters, etc.
+     * ***********************************************************************/
+    public void flush() {
+      FlushEvent event = recording() ? new FlushEvent() : null;
+      if (event != null)
+        event.begin();
+      drain(false);
+      try {
+        out.flush();
+      } 
+      catch (IOException e) {
+        writeErrorAbort();
+      } // end try
+      lastFlush = System.nanoTime();
+      flushed(event);
+    } // end flush
+
+    public void setFlushPolicy(int policy) {
+      if (policy < FLUSH_ON_CLOSE || policy > FLUSH_ALWAYS)
+        abort("Error: " + policy + " is not a flush policy");
+      flushPolicy = policy;
+    } // end setFlushPolicy
+
+    public void setFlushInterval(int milliseconds) {
+      if (milliseconds < 0)
+        abort("Error: the flush interval can't be negative");
+      flushInterval = milliseconds * 1000000L;
+      flushPolicy = FLUSH_TIMED;
+    } // end setFlushInterval
+
+    public void setBufferSize(int size) {
+      if (size < 1)
+        abort("Error: the buffer size must be at least 1");
+      drain(false);
+      char[] newChars = new char[Math.max(size, count)];
+      System.arraycopy(chars, 0, newChars, 0, count);
+      chars = newChars;
+    } // end setBufferSize
+
+    public void setWhenFull(int policy) {
+      abort("Error: \"" + fileName + "\" is not an ASYNC_OUTPUT file");
+    } // end setWhenFull
+
+    public int getQueueDepth() {
+      return 0;
+    } // end getQueueDepth
+
+    public long getDroppedCount() {
+      return 0;
+    } // end getDroppedCount
+
+    public void println(String s) {
+      putString(s);
+      putLineEnd();
+    } // end println
+
+    public void println(String s, int width) {
+      putPadded(s, width);
+      putLineEnd();
+    } // end println
+
+    public void println(int i) {
+      putInt(i);
+      putLineEnd();
+    } // end println
+
+    public void println(int i, int width) {
+      putInt(i, width);
+      putLineEnd();
+    } // end println
+
+    public void println(double d) {
+      put(Double.toString(d));
+      putLineEnd();
+    } // end println
+
+    public void println(double d, int width) {
+      putDouble(d, width, 6);
+      putLineEnd();
+    } // end println
+
+    public void println(double d, int width, int precision) {
+      putDouble(d, width, precision);
+      putLineEnd();
+    } // end println
+
+    public void println(char c) {
+      put(c);
+      putLineEnd();
+    } // end println
+
+    public void println(boolean b) {
+      put(b ? "true" : "false");
+      putLineEnd();
+    } // end println
+
+    public void println(Object obj) {
+      put(obj.toString());
+      putLineEnd();
     } // end println
 
     public void println() {
-      writer.println();
+      putLineEnd();
     } // end println
 
+    // Strings print as "null" if there isn't one, like System.out
+    private void putString(String s) {
+      put(s == null ? "null" : s);
+    } // end putString
+
     public void print(String s) {
-      writer.print(s);
+      putString(s);
+      printed();
     } // end print
 
     public void print(String s, int width) {
-      print(padLeft(s,width));
+      putPadded(s, width);
+      printed();
     } // end print
         
     public void print(int i) {
-      print(Integer.toString(i));
+      putInt(i);
+      printed();
     } // end println
 
     public void print(int i, int width) {
-      print(formatInt(i, width));
+      putInt(i, width);
+      printed();
     } // end print
 
     public void print(double d) {
-      print(Double.toString(d));
+      put(Double.toString(d));
+      printed();
     } // end print
 
     public void print(double d, int width) {
-      print(formatDouble(d, width));
+      putDouble(d, width, 6);
+      printed();
     } // end print
 
     public void print(double d, int width, int precision) {
-      print(formatDouble(d, width, precision));
+      putDouble(d, width, precision);
+      printed();
     } // end print
 
     public void print(char c) {
-      print(c + "");
+      put(c);
+      printed();
     } // end print
 
     public void print(boolean b) {
-      if (b)
-        print("true");
-      else
-        print("false");
+      put(b ? "true" : "false");
+      printed();
     } // end print
 
     public void print(Object obj) {
-      print(obj.toString());
+      put(obj.toString());
+      printed();
     } // end println
 
+    public void printRow(int[] values, int width) {
+      // Each number takes at most this many characters, so after one
+      // check for room we can write straight into the buffer.
+      int cell = Math.max(width, 11);
+      for (int i = 0; i < values.length; i++) {
+        int value = values[i];
+        if (chars.length - count < cell)
+          reserve(cell);
+        if (value == Integer.MIN_VALUE) {
+          putPadded("-2147483648", width);
+          continue;
+        } // end if
+        int magnitude = value < 0 ? -value : value;
+        int length = value < 0 ? 2 : 1;
+        for (int rest = magnitude / 10; rest != 0; rest /= 10)
+          length++;
+        for (int pad = width - length; pad > 0; pad--)
+          chars[count++] = ' ';
+        if (value < 0)
+          chars[count++] = '-';
+        int at = count + (value < 0 ? length - 1 : length);
+        count = at;
+        do {
+          chars[--at] = (char) ('0' + magnitude % 10);
+          magnitude /= 10;
+        } while (magnitude != 0);
+      } // end for
+      putLineEnd();
+    } // end printRow
+
+    public void printRow(double[] values, int width, int precision) {
+      NumberFormats formats = NumberFormats.current();
+      for (int i = 0; i < values.length; i++)
+        putDouble(values[i], width, precision, formats);
+      putLineEnd();
+    } // end printRow
+
+    public void printColumns(double[][] columns, int width, int precision) {
+      int rows = columns.length == 0 ? 0 : columns[0].length;
+      for (double[] column : columns)
+        if (column.length != rows)
+          abort("Error: the columns for \"" + fileName 
+            + "\" aren't all the same length");
+      NumberFormats formats = NumberFormats.current();
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < columns.length; col++)
+          putDouble(columns[col][row], width, precision, formats);
+        putLineEnd();
+      } // end for
+    } // end printColumns
+
     public void close() {
-      if (writer != System.out) {
-        writer.close();
-        fileName = "closed file";
+      if (standardOutput) {
+        flush();
+        return; // don't close the standard output
       } // end if
+      drain(true);
+      try {
+        out.close();
+      } 
+      catch (IOException e) {
+        writeErrorAbort();
+      } // end try
+      openOutputFiles.remove(this);
+      fileName = "closed file";
     } // end close
 
     /* ***********************************************************************
@@ -1171,6 +3604,40 @@ public class TextFile {
       readAbort();
       return 0; // keep compiler happy
     } // end readInt
+    public long readLong() {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end readLong
+    public void setDelimiters(String delimiters) {
+      readAbort();
+    } // end setDelimiters
+    public void setCharClass(String chars, int charClass) {
+      readAbort();
+    } // end setCharClass
+    public int getCharClass(char ch) {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end getCharClass
+    public boolean hasNextInt() {
+      readAbort();
+      return false; // keep compiler happy
+    } // end hasNextInt
+    public int nextInt() {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end nextInt
+    public boolean hasNextDouble() {
+      readAbort();
+      return false; // keep compiler happy
+    } // end hasNextDouble
+    public double nextDouble() {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end nextDouble
+    public int readInts(int[] numbers) {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end readInts
     public double readDouble() {
       readAbort();
       return 0; // keep compiler happy
@@ -1187,11 +3654,1548 @@ public class TextFile {
       readAbort();
       return null; // keep compiler happy
     } // end readChar
+    public WordView nextWordView() {
+      readAbort();
+      return null; // keep compiler happy
+    } // end nextWordView
     public void skipWhiteSpace() {
       readAbort();
     } // end skipWhiteSpace
+    public int readChars(char[] chars, int off, int len) {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end readChars
+    public char[] readAll() {
+      readAbort();
+      return null; // keep compiler happy
+    } // end readAll
+    public Stream<String> lines() {
+      readAbort();
+      return null; // keep compiler happy
+    } // end lines
+    public long getStallCount() {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end getStallCount
+    public void buildLineIndex() {
+      readAbort();
+    } // end buildLineIndex
+    public void saveLineIndex() {
+      readAbort();
+    } // end saveLineIndex
+    public int getLineCount() {
+      readAbort();
+      return 0; // keep compiler happy
+    } // end getLineCount
+    public String readLine(int n) {
+      readAbort();
+      return null; // keep compiler happy
+    } // end readLine
+    public void seekLine(int n) {
+      readAbort();
+    } // end seekLine
 
   } // end class OutputFileObject
 
+  /***************************************************************************
+   * An AsyncOutputFileObject implements an ASYNC_OUTPUT file.  Printing
+   * fills the buffer as usual, but each finished line is copied into a
+   * circular queue instead of being written; a thread of its own takes
+   * characters out of the queue, encodes them and writes them.  Like a
+   * LineStage, it keeps an unfinished line in the buffer (making the buffer
+   * bigger if it has to), so only whole lines go into the queue.
+   **************************************************************************/
+  private class AsyncOutputFileObject extends OutputFileObject {
+    // for making sure what's written is really on the disk
+    private final FileChannel channel;
+
+    // The queue: chars queue[head & mask] .. queue[(tail - 1) & mask].
+    // head and tail count every character that has ever gone through.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private char[] queue;
+    private int mask;
+    private long head = 0;
+    private long tail = 0;
+
+    // flush() wants everything before flushWanted on the disk; everything
+    // before flushDone is.
+    private long flushWanted = 0;
+    private long flushDone = 0;
+
+    // chars[0] .. chars[lineEnd-1] is a finished line that hasn't gone
+    // into the queue yet
+    private int lineEnd = 0;
+
+    private int whenFull = BLOCK_WHEN_FULL;
+    private long dropped = 0;
+    private boolean closing = false;
+    private final Thread writer;
+
+    public AsyncOutputFileObject(String fileName, FileOutputStream out, 
+        int queueSize) {
+      super(fileName, out);
+      channel = out.getChannel();
+      int size = queueSize <= 1 ? 1 : Integer.highestOneBit(queueSize - 1) << 1;
+      queue = new char[size];
+      mask = size - 1;
+      writer = new Thread(this::writeQueued, "TextFile writer: " + fileName);
+      writer.setDaemon(true);
+      writer.start();
+    } // end constructor
+
+    // Puts characters in the queue, as one line.
+    private void enqueue(char[] source, int off, int len) {
+      lock.lock();
+      try {
+        if (closing)
+          writeErrorAbort();
+        if (queue.length - (tail - head) < len) {
+          if (whenFull == DROP_WHEN_FULL) {
+            dropped++;
+            return;
+          } // end if
+          if (whenFull == GROW_WHEN_FULL)
+            grow(tail - head + len);
+        } // end if
+        // With BLOCK_WHEN_FULL a line longer than the whole queue goes in
+        // a piece at a time.
+        while (len > 0) {
+          int free;
+          while ((free = queue.length - (int) (tail - head)) == 0)
+            notFull.awaitUninterruptibly();
+          int n = Math.min(len, free);
+          int at = (int) (tail & mask);
+          int first = Math.min(n, queue.length - at);
+          System.arraycopy(source, off, queue, at, first);
+          System.arraycopy(source, off + first, queue, 0, n - first);
+          tail += n;
+          off += n;
+          len -= n;
+          notEmpty.signal();
+        } // end while
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+    } // end enqueue
+
+    // Makes the queue big enough for size characters.  Called with the
+    // lock held.
+    private void grow(long size) {
+      int newSize = queue.length;
+      while (newSize < size) {
+        if (newSize >= 1 << 30)
+          abort("Error: the queue for \"" + fileName + "\" is too big");
+        newSize <<= 1;
+      } // end while
+      char[] newQueue = new char[newSize];
+      int newMask = newSize - 1;
+      for (long i = head; i < tail; i++)
+        newQueue[(int) (i & newMask)] = queue[(int) (i & mask)];
+      queue = newQueue;
+      mask = newMask;
+    } // end grow
+
+    // What the writing thread does until the file is closed
+    private void writeQueued() {
+      char[] batch = new char[BLOCK_SIZE];
+      int carry = 0; // a high surrogate kept back from the last batch
+      while (true) {
+        boolean done;
+        long flushTo = -1;
+        int n;
+        lock.lock();
+        try {
+          while (head == tail && !closing && flushWanted <= flushDone)
+            notEmpty.awaitUninterruptibly();
+          n = (int) Math.min(tail - head, batch.length - carry);
+          int at = (int) (head & mask);
+          int first = Math.min(n, queue.length - at);
+          System.arraycopy(queue, at, batch, carry, first);
+          System.arraycopy(queue, 0, batch, carry + first, n - first);
+          head += n;
+          notFull.signalAll();
+          done = closing && head == tail;
+          if (flushWanted > flushDone && head >= flushWanted)
+            flushTo = flushWanted;
+        } 
+        finally {
+          lock.unlock();
+        } // end try
+
+        int length = carry + n;
+        carry = !done && length > 0 
+          && Character.isHighSurrogate(batch[length - 1]) ? 1 : 0;
+        // After a write error while the program is ending (see quiet),
+        // the rest of the queue is just thrown away
+        if (!failed)
+          writeChars(batch, 0, length - carry, done);
+        if (carry == 1)
+          batch[0] = batch[length - 1];
+        if (flushTo >= 0) {
+          try {
+            out.flush();
+            channel.force(false);
+          } 
+          catch (IOException e) {
+            writeErrorAbort();
+          } // end try
+          lock.lock();
+          try {
+            flushDone = flushTo;
+            flushed.signalAll();
+          } 
+          finally {
+            lock.unlock();
+          } // end try
+        } // end if
+        if (done)
+          return;
+      } // end while
+    } // end writeQueued
+
+    // Waits for the writing thread to finish off the queue and stop.
+    private void stopWriter() {
+      lock.lock();
+      try {
+        closing = true;
+        notEmpty.signal();
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+      boolean interrupted = false;
+      while (writer.isAlive()) {
+        try {
+          writer.join();
+        } 
+        catch (InterruptedException e) {
+          interrupted = true;
+        } // end try
+      } // end while
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    } // end stopWriter
+
+    // Instead of writing the buffer, put the finished line in the queue
+    // (or, if finished, everything).  An unfinished line stays here, in a
+    // bigger buffer if this one is full.
+    protected void drain(boolean finished) {
+      int n = finished ? count : lineEnd;
+      if (n > 0) {
+        enqueue(chars, 0, n);
+        System.arraycopy(chars, n, chars, 0, count - n);
+        count -= n;
+      } // end if
+      lineEnd = 0;
+      if (count == chars.length)
+        chars = Arrays.copyOf(chars, chars.length * 2);
+    } // end drain
+
+    // Every finished line goes in the queue, before flushing if the policy
+    // says to.
+    protected void putLineEnd() {
+      put(LINE_SEPARATOR);
+      if (stats != null)
+        stats.linesWritten.increment();
+      lineEnd = count;
+      drain(false);
+      if (flushPolicy == FLUSH_ON_NEWLINE || flushPolicy == FLUSH_ALWAYS 
+          || (flushPolicy == FLUSH_TIMED && timeToFlush()))
+        flush();
+    } // end putLineEnd
+
+    // The writing thread sees quiet too, so if it gets a write error now it
+    // doesn't abort while we wait for it to stop.
+    void flushQuietly() {
+      quiet = true;
+      if (failed || closing)
+        return;
+      drain(true);
+      stopWriter();
+      try {
+        out.flush();
+      } 
+      catch (IOException e) {
+        // too late to do anything about it
+      } // end try
+    } // end flushQuietly
+
+    /* ***********************************************************************
+     * PUBLIC METHODS
+     * ***********************************************************************/
+    public void flush() {
+      FlushEvent event = recording() ? new FlushEvent() : null;
+      if (event != null)
+        event.begin();
+      drain(false);
+      lock.lock();
+      try {
+        long target = tail;
+        if (flushWanted < target) {
+          flushWanted = target;
+          notEmpty.signal();
+        } // end if
+        while (flushDone < target && !failed)
+          flushed.awaitUninterruptibly();
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+      lastFlush = System.nanoTime();
+      flushed(event);
+    } // end flush
+
+    public void setWhenFull(int policy) {
+      if (policy < BLOCK_WHEN_FULL || policy > GROW_WHEN_FULL)
+        abort("Error: " + policy + " is not a policy for a full queue");
+      lock.lock();
+      try {
+        whenFull = policy;
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+    } // end setWhenFull
+
+    public int getQueueDepth() {
+      lock.lock();
+      try {
+        return (int) (tail - head);
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+    } // end getQueueDepth
+
+    public long getDroppedCount() {
+      lock.lock();
+      try {
+        return dropped;
+      } 
+      finally {
+        lock.unlock();
+      } // end try
+    } // end getDroppedCount
+
+    public void close() {
+      drain(true);
+      stopWriter();
+      try {
+        out.close();
+      } 
+      catch (IOException e) {
+        writeErrorAbort();
+      } // end try
+      openOutputFiles.remove(this);
+      fileName = "closed file";
+    } // end close
+  } // end class AsyncOutputFileObject
+
+  /***************************************************************************
+   * A SharedOutputFileObject implements a SHARED_OUTPUT file.  Each thread
+   * that prints to it gets a LineStage of its own to print into (all the
+   * print methods just pass the call on), and the LineStage hands whole
+   * lines over to this object's buffer a batch at a time.  Only the hand-
+   * over (and the writing, when this object's buffer fills up) is done
+   * holding this object's lock.
+   **************************************************************************/
+  private class SharedOutputFileObject extends OutputFileObject {
+    // every thread's LineStage, so close can find lines that are left over
+    private final ConcurrentLinkedQueue<LineStage> stages = 
+      new ConcurrentLinkedQueue<LineStage>();
+    private final ThreadLocal<LineStage> stage = ThreadLocal.withInitial(() -> {
+      LineStage newStage = new LineStage(this);
+      stages.add(newStage);
+      return newStage;
+    });
+
+    public SharedOutputFileObject(String fileName, OutputStream out) {
+      super(fileName, out);
+    } // end constructor
+
+    // Copies lines from a LineStage into the buffer.
+    synchronized void append(char[] source, int len) {
+      put(source, 0, len);
+    } // end append
+
+    // Hands over everything every thread has printed.
+    private void handOffAll() {
+      for (LineStage each : stages)
+        each.handOff(true);
+    } // end handOffAll
+
+    void flushQuietly() {
+      quiet = true;
+      if (failed)
+        return;
+      synchronized (this) {
+        handOffAll();
+        super.flushQuietly();
+      } // end synchronized
+    } // end flushQuietly
+
+    /* ***********************************************************************
+     * PUBLIC METHODS
+     * ***********************************************************************/
+    public void flush() {
+      stage.get().handOff(false);
+      synchronized (this) {
+        super.flush();
+      } // end synchronized
+    } // end flush
+
+    public synchronized void setBufferSize(int size) {
+      super.setBufferSize(size);
+    } // end setBufferSize
+
+    public void println(String s) {
+      stage.get().println(s);
+    } // end println
+
+    public void println(String s, int width) {
+      stage.get().println(s, width);
+    } // end println
+
+    public void println(int i) {
+      stage.get().println(i);
+    } // end println
+
+    public void println(int i, int width) {
+      stage.get().println(i, width);
+    } // end println
+
+    public void println(double d) {
+      stage.get().println(d);
+    } // end println
+
+    public void println(double d, int width) {
+      stage.get().println(d, width);
+    } // end println
+
+    public void println(double d, int width, int precision) {
+      stage.get().println(d, width, precision);
+    } // end println
+
+    public void println(char c) {
+      stage.get().println(c);
+    } // end println
+
+    public void println(boolean b) {
+      stage.get().println(b);
+    } // end println
+
+    public void println(Object obj) {
+      stage.get().println(obj);
+    } // end println
+
+    public void println() {
+      stage.get().println();
+    } // end println
+
+    public void print(String s) {
+      stage.get().print(s);
+    } // end print
+
+    public void print(String s, int width) {
+      stage.get().print(s, width);
+    } // end print
+
+    public void print(int i) {
+      stage.get().print(i);
+    } // end print
+
+    public void print(int i, int width) {
+      stage.get().print(i, width);
+    } // end print
+
+    public void print(double d) {
+      stage.get().print(d);
+    } // end print
+
+    public void print(double d, int width) {
+      stage.get().print(d, width);
+    } // end print
+
+    public void print(double d, int width, int precision) {
+      stage.get().print(d, width, precision);
+    } // end print
+
+    public void print(char c) {
+      stage.get().print(c);
+    } // end print
+
+    public void print(boolean b) {
+      stage.get().print(b);
+    } // end print
+
+    public void print(Object obj) {
+      stage.get().print(obj);
+    } // end print
+
+    public void printRow(int[] values, int width) {
+      stage.get().printRow(values, width);
+    } // end printRow
+
+    public void printRow(double[] values, int width, int precision) {
+      stage.get().printRow(values, width, precision);
+    } // end printRow
+
+    public void printColumns(double[][] columns, int width, int precision) {
+      stage.get().printColumns(columns, width, precision);
+    } // end printColumns
+
+    public synchronized void close() {
+      handOffAll();
+      super.close();
+    } // end close
+  } // end class SharedOutputFileObject
+
+  /***************************************************************************
+   * A LineStage collects what one thread prints to a SHARED_OUTPUT file.
+   * It never writes anything itself: finished lines are handed over to the
+   * SharedOutputFileObject.  A line that doesn't fit in the buffer makes
+   * the buffer bigger, so a line is always handed over in one piece.  Only
+   * its own thread ever touches it (until the file is closed), so nothing
+   * here needs a lock; the price is that only its own thread can hand its
+   * lines over, which is why a timed flush can't reach the lines of a
+   * thread that has stopped printing.
+   **************************************************************************/
+  private class LineStage extends OutputFileObject {
+    // Finished lines are handed over once there are this many characters
+    private static final int HAND_OFF_SIZE = 8192;
+
+    private final SharedOutputFileObject owner;
+
+    // chars[0] .. chars[lineEnd-1] are finished lines
+    private int lineEnd = 0;
+
+    public LineStage(SharedOutputFileObject owner) {
+      super(owner.fileName, null);
+      this.owner = owner;
+    } // end constructor
+
+    // Hands the finished lines (or, if all is true, everything) to the
+    // owner.
+    void handOff(boolean all) {
+      int n = all ? count : lineEnd;
+      if (n == 0)
+        return;
+      owner.append(chars, n);
+      System.arraycopy(chars, n, chars, 0, count - n);
+      count -= n;
+      lineEnd = 0;
+    } // end handOff
+
+    // Called when the buffer is full (or, if finished, to hand over
+    // everything).  Unfinished lines stay here, in a bigger buffer.
+    protected void drain(boolean finished) {
+      if (finished) {
+        handOff(true);
+        return;
+      } // end if
+      handOff(false);
+      if (count == chars.length)
+        chars = Arrays.copyOf(chars, chars.length * 2);
+    } // end drain
+
+    protected void putLineEnd() {
+      put(LINE_SEPARATOR);
+      if (owner.stats != null)
+        owner.stats.linesWritten.increment();
+      lineEnd = count;
+      int policy = owner.flushPolicy;
+      if (policy == FLUSH_ON_NEWLINE || policy == FLUSH_ALWAYS 
+          || (policy == FLUSH_TIMED && owner.timeToFlush()))
+        owner.flush();
+      else if (lineEnd >= HAND_OFF_SIZE)
+        handOff(false);
+    } // end putLineEnd
+
+    // Nothing is passed on until its line is finished, whatever the policy.
+    protected void printed() {
+    } // end printed
+  } // end class LineStage
+
+  /***************************************************************************
+   * A ByteBlockReader turns blocks of bytes into characters for an
+   * InputFileObject.  Subclasses say where the bytes come from.  For the
+   * common character sets, plain ASCII bytes (and every byte in Latin-1)
+   * are turned into characters directly; everything else goes through a
+   * CharsetDecoder, which replaces bad bytes the same way a FileReader does.
+   **************************************************************************/
+  private static abstract class ByteBlockReader extends Reader {
+    // The current block of bytes; position() is the next byte to decode.
+    protected ByteBuffer bytes = ByteBuffer.allocate(0);
+
+    private final Charset charset = Charset.defaultCharset();
+    private final CharsetDecoder decoder = charset.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    // true if every byte is one character (ISO-8859-1)
+    private final boolean latin1 = charset.name().equals("ISO-8859-1");
+
+    // true if the bytes 0-127 always mean the ASCII characters
+    private final boolean asciiBytes = latin1 || charset.name().equals("UTF-8")
+      || charset.name().equals("US-ASCII");
+
+    // a CharBuffer view of the last array we decoded into, so we don't
+    // make a new one for every block
+    private CharBuffer chars;
+
+    // how many bytes have been turned into characters
+    long bytesRead = 0;
+
+    // Moves on to the next block of bytes, keeping any bytes from
+    // position() on in the current block.  Returns false if there are
+    // no more bytes.
+    protected abstract boolean nextBytes() throws IOException;
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0)
+        return 0;
+      while (true) {
+        if (bytes.hasRemaining()) {
+          int start = bytes.position();
+          int count = decode(cbuf, off, len);
+          bytesRead += bytes.position() - start;
+          if (count > 0)
+            return count;
+          // otherwise there's only part of a character left in this block
+        } // end if
+        if (!nextBytes()) {
+          if (!bytes.hasRemaining())
+            return -1;
+          bytesRead += bytes.remaining();
+          return decodeLast(cbuf, off, len);
+        } // end if
+      } // end while
+    } // end read
+
+    // Decodes as many characters as possible (up to len) from the current
+    // block.  Returns 0 if the block only has the start of a character.
+    private int decode(char[] cbuf, int off, int len) {
+      int start = bytes.position();
+      int count = Math.min(len, bytes.limit() - start);
+      if (latin1) {
+        for (int i = 0; i < count; i++)
+          cbuf[off + i] = (char) (bytes.get(start + i) & 0xff);
+        bytes.position(start + count);
+        return count;
+      } // end if
+      if (asciiBytes) {
+        int i = 0;
+        while (i < count) {
+          byte b = bytes.get(start + i);
+          if (b < 0)
+            break;
+          cbuf[off + i] = (char) b;
+          i++;
+        } // end while
+        bytes.position(start + i);
+        if (i > 0)
+          return i;
+      } // end if
+
+      // No fast path for this character.  Let the decoder do a short run
+      // (and the rest of the block if that wasn't enough for a character).
+      CharBuffer out = view(cbuf, off, len);
+      int end = bytes.limit();
+      if (asciiBytes && end - start > 256)
+        bytes.limit(start + 256);
+      decoder.decode(bytes, out, false);
+      if (out.position() == off && bytes.limit() != end) {
+        bytes.limit(end);
+        decoder.decode(bytes, out, false);
+      } // end if
+      bytes.limit(end);
+      return out.position() - off;
+    } // end decode
+
+    // Decodes the bytes at the very end of the input, which don't make a
+    // whole character.
+    private int decodeLast(char[] cbuf, int off, int len) {
+      CharBuffer out = view(cbuf, off, len);
+      decoder.decode(bytes, out, true);
+      decoder.flush(out);
+      bytes.position(bytes.limit()); // nothing more can come out of these
+      return out.position() - off;
+    } // end decodeLast
+
+    private CharBuffer view(char[] cbuf, int off, int len) {
+      if (chars == null || chars.array() != cbuf)
+        chars = CharBuffer.wrap(cbuf);
+      chars.limit(off + len);
+      chars.position(off);
+      return chars;
+    } // end view
+  } // end class ByteBlockReader
+
+  /***************************************************************************
+   * A MappedReader reads a file for MAPPED_INPUT.  It maps the file into
+   * memory one window at a time, since a single mapping can't be bigger
+   * than 2 GB.
+   **************************************************************************/
+  private static class MappedReader extends ByteBlockReader {
+    // How much of the file we map at once.
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private FileChannel channel;
+    private long fileSize;
+
+    // where the current window starts in the file
+    private long windowStart = 0;
+
+    public MappedReader(FileChannel channel) throws IOException {
+      this(channel, 0);
+    } // end constructor
+
+    // for a reader that starts part way into the file (bytesRead counts
+    // from the start of the file, like a plain file's position)
+    public MappedReader(FileChannel channel, long start) throws IOException {
+      this.channel = channel;
+      fileSize = channel.size();
+      windowStart = start;
+      bytesRead = start;
+    } // end constructor
+
+    protected boolean nextBytes() throws IOException {
+      long windowEnd = windowStart + bytes.limit();
+      if (windowEnd >= fileSize)
+        return false;
+      // start the new window at the first byte we haven't used yet
+      windowStart += bytes.position();
+      long size = Math.min(WINDOW_SIZE, fileSize - windowStart);
+      bytes = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+      return true;
+    } // end nextBytes
+
+    public void close() throws IOException {
+      channel.close();
+    } // end close
+  } // end class MappedReader
+
+  /***************************************************************************
+   * A StandardInputReader reads the standard input for KEYBOARD.  It asks
+   * System.in for a big block of bytes at a time, and decodes them itself.
+   * A read that big from the usual System.in goes straight to the
+   * operating system without being copied through its buffer.  It reads
+   * from whatever System.in is at the time, so a program (or a test
+   * harness) that calls System.setIn reads what it set.
+   **************************************************************************/
+  private static class StandardInputReader extends ByteBlockReader {
+    // How many bytes we read at once.
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    public StandardInputReader() {
+      bytes = ByteBuffer.allocate(BLOCK_SIZE);
+      bytes.limit(0);
+    } // end constructor
+
+    protected boolean nextBytes() throws IOException {
+      bytes.compact(); // keep the start of a character cut off last time
+      int count = System.in.read(bytes.array(), bytes.position(), 
+        bytes.remaining());
+      if (count > 0)
+        bytes.position(bytes.position() + count);
+      bytes.flip();
+      return count > 0;
+    } // end nextBytes
+
+    public void close() throws IOException {
+      System.in.close();
+    } // end close
+  } // end class StandardInputReader
+
+  /***************************************************************************
+   * A LineSpliterator hands out the lines in part of a file, for the lines()
+   * stream.  The part starts at the beginning of a line and goes up to the
+   * beginning of another line (or the end of the file).  To split, it looks
+   * for the first '\n' after the middle of its part, so both halves still
+   * start at the beginning of a line.  Only works for character sets where
+   * a '\n' or '\r' byte is always a line break.
+   **************************************************************************/
+  private static class LineSpliterator implements Spliterator<String> {
+    // Parts smaller than this aren't worth splitting.
+    private static final long MIN_SPLIT = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+
+    // The part of the file we haven't handed out yet is from position to
+    // end.  The first bufferEnd - bufferStart bytes of it may already be
+    // in the buffer.
+    private long position;
+    private long end;
+    private byte[] buffer;
+    private int bufferStart = 0;
+    private int bufferEnd = 0;
+
+    // True if the last line ended with '\r', so a '\n' right after it
+    // doesn't start another line.
+    private boolean skipLF = false;
+
+    public LineSpliterator(FileChannel channel, long start, long end,
+        Charset charset) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+      this.charset = charset;
+    } // end constructor
+
+    // Returns true if a LineSpliterator can work with this character set
+    public static boolean canSplit(Charset charset) {
+      String name = charset.name();
+      return name.equals("UTF-8") || name.equals("ISO-8859-1") 
+        || name.equals("US-ASCII");
+    } // end canSplit
+
+    // Reads up to bytes.length bytes from the file starting at from (but
+    // not past end).  Returns the number read.
+    private int readAt(byte[] bytes, int off, int len, long from) {
+      len = (int) Math.min(len, end - from);
+      ByteBuffer wrapper = ByteBuffer.wrap(bytes, off, len);
+      try {
+        while (wrapper.hasRemaining()) {
+          if (channel.read(wrapper, from + wrapper.position() - off) < 0)
+            break;
+        } // end while
+      } 
+      catch (IOException e) {
+        abort("I/O error while reading from a lines() stream");
+      } // end try
+      return wrapper.position() - off;
+    } // end readAt
+
+    public boolean tryAdvance(Consumer<? super String> action) {
+      if (buffer == null)
+        buffer = new byte[(int) Math.min(65536, Math.max(16, end - position))];
+      int i = bufferStart;
+      while (true) {
+        if (i == bufferEnd) {
+          // need more of the file
+          long unread = end - position - (bufferEnd - bufferStart);
+          if (unread <= 0)
+            break;
+          if (bufferStart > 0) {
+            System.arraycopy(buffer, bufferStart, buffer, 0, bufferEnd - bufferStart);
+            i -= bufferStart;
+            bufferEnd -= bufferStart;
+            bufferStart = 0;
+          } // end if
+          if (bufferEnd == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          bufferEnd += readAt(buffer, bufferEnd, buffer.length - bufferEnd, 
+            position + bufferEnd);
+          continue;
+        } // end if
+        byte b = buffer[i];
+        if (skipLF) {
+          skipLF = false;
+          if (b == '\n' && i == bufferStart) {
+            bufferStart++;
+            position++;
+            i++;
+            continue;
+          } // end if
+        } // end if
+        if (b == '\n' || b == '\r') {
+          action.accept(new String(buffer, bufferStart, i - bufferStart, charset));
+          skipLF = b == '\r';
+          position += i + 1 - bufferStart;
+          bufferStart = i + 1;
+          return true;
+        } // end if
+        i++;
+      } // end while
+      if (i == bufferStart)
+        return false;
+      // a last line without a line break
+      action.accept(new String(buffer, bufferStart, i - bufferStart, charset));
+      position = end;
+      bufferStart = bufferEnd = 0;
+      return true;
+    } // end tryAdvance
+
+    public Spliterator<String> trySplit() {
+      if (end - position < MIN_SPLIT || bufferEnd > bufferStart || skipLF)
+        return null;
+      // find the first line break after the middle
+      long split = position + (end - position) / 2;
+      byte[] look = new byte[4096];
+      while (true) {
+        int count = readAt(look, 0, look.length, split);
+        if (count == 0)
+          return null;
+        int i = 0;
+        while (i < count && look[i] != '\n')
+          i++;
+        split += i;
+        if (i < count)
+          break;
+      } // end while
+      split++; // the first half includes the '\n'
+      if (split >= end)
+        return null;
+      LineSpliterator firstHalf = new LineSpliterator(channel, position, split, charset);
+      position = split;
+      return firstHalf;
+    } // end trySplit
+
+    public long estimateSize() {
+      return end - position; // bytes, so more than the number of lines
+    } // end estimateSize
+
+    public int characteristics() {
+      return ORDERED | NONNULL | IMMUTABLE;
+    } // end characteristics
+  } // end class LineSpliterator
+
+  /***************************************************************************
+   * A PrefetchReader reads a file for PREFETCH_INPUT.  A background thread
+   * reads blocks of characters from another Reader into a fixed ring of
+   * buffers, while the program uses the buffers that are already full.
+   * Empty buffers go back to the thread through one queue and full ones
+   * come to the program through another, so nothing is allocated after
+   * the start.
+   **************************************************************************/
+  private static class PrefetchReader extends Reader {
+    // One buffer in the ring.  last is true for the block at the end of
+    // the file; error is set if the thread couldn't read.
+    private static class Block {
+      char[] chars;
+      int count;
+      boolean last;
+      IOException error;
+    } // end class Block
+
+    private final Reader source;
+    final int bufferCount;
+    final int bufferSize;
+    private final ArrayBlockingQueue<Block> empty;
+    private final ArrayBlockingQueue<Block> full;
+    private final Thread thread;
+
+    // the block the program is using, and where it's up to in it
+    private Block current;
+    private int index;
+    private boolean done = false;
+
+    // How many times read() had to wait for the thread.  Only changed by
+    // the program's thread, but volatile so other threads can watch it.
+    volatile long stalls = 0;
+
+    public PrefetchReader(Reader source, String fileName, int bufferCount,
+        int bufferSize) {
+      this.source = source;
+      this.bufferCount = bufferCount;
+      this.bufferSize = bufferSize;
+      empty = new ArrayBlockingQueue<Block>(bufferCount);
+      full = new ArrayBlockingQueue<Block>(bufferCount);
+      for (int i = 0; i < bufferCount; i++) {
+        Block block = new Block();
+        block.chars = new char[bufferSize];
+        empty.add(block);
+      } // end for
+      thread = new Thread(this::readAhead, "TextFile prefetch " + fileName);
+      thread.setDaemon(true);
+      thread.start();
+    } // end constructor
+
+    // What the background thread does: fill empty blocks until the end of
+    // the file.
+    private void readAhead() {
+      try {
+        while (true) {
+          Block block = empty.take();
+          block.count = 0;
+          try {
+            while (block.count < block.chars.length) {
+              int n = source.read(block.chars, block.count, 
+                block.chars.length - block.count);
+              if (n < 0) {
+                block.last = true;
+                break;
+              } // end if
+              block.count += n;
+            } // end while
+          } 
+          catch (IOException e) {
+            block.error = e;
+            block.last = true;
+          } // end try
+          full.put(block);
+          if (block.last)
+            return;
+        } // end while
+      } 
+      catch (InterruptedException e) {
+        // closed while reading ahead; just stop
+      } // end try
+    } // end readAhead
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      if (len == 0)
+        return 0;
+      while (current == null || index == current.count) {
+        if (done)
+          return -1;
+        if (current != null) {
+          if (current.last) {
+            done = true;
+            if (current.error != null)
+              throw current.error;
+            return -1;
+          } // end if
+          empty.add(current);
+        } // end if
+        current = full.poll();
+        if (current == null) {
+          stalls++;
+          try {
+            current = full.take();
+          } 
+          catch (InterruptedException e) {
+            throw new InterruptedIOException("interrupted while reading ahead");
+          } // end try
+        } // end if
+        index = 0;
+      } // end while
+      int count = Math.min(len, current.count - index);
+      System.arraycopy(current.chars, index, cbuf, off, count);
+      index += count;
+      return count;
+    } // end read
+
+    public void close() throws IOException {
+      thread.interrupt();
+      source.close();
+    } // end close
+  } // end class PrefetchReader
+
+  /***************************************************************************
+   * A LineIndex holds where each line of a file starts, in bytes.  offsets
+   * has one more entry than there are lines: the last entry is the length
+   * of the file, so line n is always offsets[n] up to offsets[n+1].  Like
+   * LineSpliterator, it only works when '\n' and '\r' bytes are always line
+   * breaks.
+   **************************************************************************/
+  private static class LineIndex {
+    // Files smaller than this are indexed by one thread.
+    private static final long MIN_CHUNK = 1024 * 1024;
+
+    // The first thing in a saved index file, so we know it is one
+    private static final long MAGIC = 0x546578744c696e65L; // "TextLine"
+
+    long[] offsets;
+    private long fileSize;
+    private long modified;
+
+    public int lineCount() {
+      return offsets.length - 1;
+    } // end lineCount
+
+    // Finds the line starts in a file, splitting the work between all
+    // of the processors.
+    public static LineIndex build(final FileChannel channel) throws IOException {
+      final long size = channel.size();
+      int chunks = (int) Math.max(1, Math.min(
+        Runtime.getRuntime().availableProcessors() * 4L, size / MIN_CHUNK));
+      final long chunkSize = (size + chunks - 1) / chunks;
+      long[][] starts = IntStream.range(0, chunks).parallel().mapToObj(c -> 
+        lineStarts(channel, c * chunkSize, Math.min(size, (c + 1) * chunkSize), size)
+      ).toArray(long[][]::new);
+
+      // put the pieces together: line 0 starts at 0, then the line starts
+      // from each chunk, then the end of the file
+      int total = size > 0 ? 2 : 1;
+      for (long[] chunk : starts)
+        total += (int) chunk[0];
+      LineIndex index = new LineIndex();
+      index.offsets = new long[total];
+      int n = 0;
+      if (size > 0)
+        index.offsets[n++] = 0;
+      for (long[] chunk : starts) {
+        System.arraycopy(chunk, 1, index.offsets, n, (int) chunk[0]);
+        n += (int) chunk[0];
+      } // end for
+      index.offsets[n] = size;
+      return index;
+    } // end build
+
+    // Finds the lines that start after a line break in bytes start..end-1
+    // of the file (leaving out the end of the file itself).  Returns them
+    // in an array whose first element says how many there are.
+    private static long[] lineStarts(FileChannel channel, long start, long end,
+        long size) {
+      long[] starts = new long[1025];
+      ByteBuffer bytes = ByteBuffer.allocate(65536);
+      long at = start;
+      try {
+        while (at < end) {
+          bytes.clear();
+          // read one byte more than we need, to see what's after a '\r'
+          bytes.limit((int) Math.min(bytes.capacity(), end - at + 1));
+          int count = 0;
+          while (bytes.hasRemaining()) {
+            int n = channel.read(bytes, at + count);
+            if (n < 0)
+              break;
+            count += n;
+          } // end while
+          // (the last byte of a full buffer is only there to look at)
+          int usable = (int) Math.min(Math.min(count, end - at), 
+            bytes.capacity() - 1);
+          for (int i = 0; i < usable; i++) {
+            byte b = bytes.get(i);
+            boolean lineBreak = b == '\n' 
+              || (b == '\r' && (i + 1 >= count || bytes.get(i + 1) != '\n'));
+            if (lineBreak && at + i + 1 < size) {
+              long next = starts[0] + 1;
+              if (next == starts.length)
+                starts = Arrays.copyOf(starts, starts.length * 2);
+              starts[(int) next] = at + i + 1;
+              starts[0] = next;
+            } // end if
+          } // end for
+          at += usable;
+        } // end while
+      } 
+      catch (IOException e) {
+        abort("I/O error while making a line index");
+      } // end try
+      return starts;
+    } // end lineStarts
+
+    // Where the index for a file is saved
+    private static File indexFile(File file) {
+      return new File(file.getPath() + ".lineindex");
+    } // end indexFile
+
+    // Loads the saved index for file, or returns null if there isn't an
+    // up-to-date one.
+    public static LineIndex load(File file) throws IOException {
+      File saved = indexFile(file);
+      if (!saved.exists())
+        return null;
+      try (FileChannel in = FileChannel.open(saved.toPath())) {
+        ByteBuffer header = ByteBuffer.allocate(32);
+        while (header.hasRemaining() && in.read(header) >= 0)
+          ;
+        header.flip();
+        if (header.remaining() < 32 || header.getLong() != MAGIC 
+            || header.getLong() != file.length() 
+            || header.getLong() != file.lastModified())
+          return null;
+        long count = header.getLong();
+        if (count < 1 || count > Integer.MAX_VALUE - 8 
+            || in.size() != 32 + 8 * count)
+          return null;
+        LineIndex index = new LineIndex();
+        index.offsets = new long[(int) count];
+        ByteBuffer block = ByteBuffer.allocateDirect(65536);
+        int n = 0;
+        while (n < count) {
+          block.clear();
+          if (in.read(block) < 0)
+            return null;
+          block.flip();
+          LongBuffer longs = block.asLongBuffer();
+          int got = longs.remaining();
+          longs.get(index.offsets, n, got);
+          n += got;
+          // keep any bytes of a long that was cut off
+          block.position(got * 8);
+          in.position(in.position() - block.remaining());
+        } // end while
+        return index;
+      } // end try
+    } // end load
+
+    // Saves the index next to file.
+    public void save(File file) throws IOException {
+      File saved = indexFile(file);
+      try (FileChannel out = FileChannel.open(saved.toPath(), 
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer block = ByteBuffer.allocateDirect(65536);
+        block.putLong(MAGIC).putLong(file.length()).putLong(file.lastModified())
+          .putLong(offsets.length);
+        int n = 0;
+        while (true) {
+          LongBuffer longs = block.asLongBuffer();
+          int put = Math.min(longs.remaining(), offsets.length - n);
+          longs.put(offsets, n, put);
+          n += put;
+          block.position(block.position() + put * 8);
+          block.flip();
+          while (block.hasRemaining())
+            out.write(block);
+          block.clear();
+          if (n == offsets.length)
+            break;
+        } // end while
+      } // end try
+    } // end save
+  } // end class LineIndex
+
+  /**
+   * A word from an input file, as returned by <tt>nextWordView</tt>: a
+   * window onto the file's buffer rather than a copy.  The same WordView
+   * is reused for every word, so its contents change when the file is
+   * read again.
+   * <p>
+   * <tt>hashCode</tt> is the same as for a String with the same characters,
+   * and <tt>equals</tt> is true for another WordView or a String (or any
+   * other CharSequence) with the same characters.  (A String's own
+   * <tt>equals</tt> is never true for a WordView, but HashMap and HashSet
+   * call the <tt>equals</tt> of the key you give them, so looking up a
+   * WordView in a map with String keys works.)
+   */
+  public static final class WordView implements CharSequence {
+    private char[] chars;
+    private int start;
+    private int length;
+
+    // the String hash code of the word, or 0 if not worked out yet
+    private int hash;
+
+    // the canonical Strings handed out by intern, made on first use
+    private HashMap<String, String> interned;
+
+    private WordView() {
+    } // end constructor
+
+    // Makes this the view of chars[start] .. chars[start+length-1]
+    void set(char[] chars, int start, int length) {
+      this.chars = chars;
+      this.start = start;
+      this.length = length;
+      hash = 0;
+    } // end set
+
+    /** @return the number of characters in the word */
+    public int length() {
+      return length;
+    } // end length
+
+    /**
+     * @param index which character (0 for the first)
+     * @return the character at the index
+     */
+    public char charAt(int index) {
+      if (index < 0 || index >= length)
+        throw new IndexOutOfBoundsException("index " + index 
+          + ", length " + length);
+      return chars[start + index];
+    } // end charAt
+
+    /**
+     * @param from index of the first character
+     * @param to index just past the last character
+     * @return a String holding those characters of the word
+     */
+    public CharSequence subSequence(int from, int to) {
+      if (from < 0 || to > length || from > to)
+        throw new IndexOutOfBoundsException("from " + from + ", to " + to 
+          + ", length " + length);
+      return new String(chars, start + from, to - from);
+    } // end subSequence
+
+    /** @return a new String holding the word, which you can keep */
+    public String toString() {
+      return new String(chars, start, length);
+    } // end toString
+
+    /**
+     * Returns a String holding the word, the same String every time this
+     * file's words are interned, so that a program keeping many copies of
+     * the same few words only keeps one String for each.  Only words you
+     * intern are remembered.
+     * 
+     * @return the one String for this word
+     */
+    public String intern() {
+      if (interned == null)
+        interned = new HashMap<String, String>();
+      String word = interned.get(this);
+      if (word == null) {
+        word = toString();
+        interned.put(word, word);
+      } // end if
+      return word;
+    } // end intern
+
+    /** @return the same hash code as the word's String would have */
+    public int hashCode() {
+      int h = hash;
+      if (h == 0) {
+        for (int i = start, end = start + length; i < end; i++)
+          h = 31 * h + chars[i];
+        hash = h;
+      } // end if
+      return h;
+    } // end hashCode
+
+    /**
+     * @param obj the object to compare with
+     * @return true if obj is a WordView, String or other CharSequence 
+     *         holding the same characters
+     */
+    public boolean equals(Object obj) {
+      if (obj == this)
+        return true;
+      if (!(obj instanceof CharSequence))
+        return false;
+      CharSequence other = (CharSequence) obj;
+      if (other.length() != length)
+        return false;
+      for (int i = 0; i < length; i++)
+        if (other.charAt(i) != chars[start + i])
+          return false;
+      return true;
+    } // end equals
+  } // end class WordView
+
+  /***************************************************************************
+   * Statistics.  With -Dtextfile.stats=true each TextFile has a Stats object,
+   * registered with the platform MBean server as
+   * "TextFile:type=TextFile,id=...,name=...", until the file is closed.
+   **************************************************************************/
+
+  /**
+   * What a TextFile's MBean tells you when you run with
+   * <tt>-Dtextfile.stats=true</tt>.  The histograms have one count for each
+   * power of two nanoseconds: entry <tt>i</tt> counts refills (or writes)
+   * that took from 2<sup>i</sup> up to 2<sup>i+1</sup> nanoseconds.
+   */
+  public interface StatsMBean {
+    /** @return the name of the file */
+    String getFileName();
+    /** @return characters read so far */
+    long getCharsRead();
+    /** @return bytes read so far, or -1 if this kind of file can't tell */
+    long getBytesRead();
+    /** @return lines read so far (counting the ends of lines) */
+    long getLinesRead();
+    /** @return how many times the input buffer has been refilled */
+    long getRefills();
+    /** @return total time spent waiting for refills, in nanoseconds */
+    long getRefillNanos();
+    /** @return how long refills took (see above) */
+    long[] getRefillHistogram();
+    /** @return characters written so far */
+    long getCharsWritten();
+    /** @return bytes written so far */
+    long getBytesWritten();
+    /** @return lines written so far */
+    long getLinesWritten();
+    /** @return how many blocks of bytes have been written */
+    long getWrites();
+    /** @return total time spent writing, in nanoseconds */
+    long getWriteNanos();
+    /** @return how long writes took (see above) */
+    long[] getWriteHistogram();
+    /** @return how many times the file has been flushed */
+    long getFlushes();
+    /** @return average characters per line read or written */
+    double getAverageLineLength();
+  } // end interface StatsMBean
+
+  private static final class Stats implements StatsMBean {
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private final FileObject file;
+    private ObjectName name;
+
+    // LongAdders, since an ASYNC_OUTPUT file's writer or SHARED_OUTPUT
+    // threads update them too
+    final LongAdder charsRead = new LongAdder();
+    final LongAdder linesRead = new LongAdder();
+    final LongAdder refills = new LongAdder();
+    final LongAdder refillNanos = new LongAdder();
+    final AtomicLongArray refillHistogram = new AtomicLongArray(64);
+    final LongAdder charsWritten = new LongAdder();
+    final LongAdder bytesWritten = new LongAdder();
+    final LongAdder linesWritten = new LongAdder();
+    final LongAdder writes = new LongAdder();
+    final LongAdder writeNanos = new LongAdder();
+    final AtomicLongArray writeHistogram = new AtomicLongArray(64);
+    final LongAdder flushes = new LongAdder();
+
+    private Stats(FileObject file) {
+      this.file = file;
+    } // end constructor
+
+    // Makes a Stats object for a file and registers its MBean.  If that
+    // can't be done the statistics are still kept; they just can't be seen.
+    static Stats register(FileObject file) {
+      Stats stats = new Stats(file);
+      try {
+        stats.name = new ObjectName("TextFile:type=TextFile,id=" 
+          + nextId.incrementAndGet() + ",name=" + ObjectName.quote(file.fileName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+          new StandardMBean(stats, StatsMBean.class), stats.name);
+      } 
+      catch (JMException e) {
+        stats.name = null;
+      } // end try
+      return stats;
+    } // end register
+
+    void unregister() {
+      if (name == null)
+        return;
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      } 
+      catch (JMException e) {
+        // already gone
+      } // end try
+      name = null;
+    } // end unregister
+
+    // A refill that took nanos and added chars[start] .. chars[end-1]
+    void refilled(long nanos, char[] chars, int start, int end) {
+      refills.increment();
+      refillNanos.add(nanos);
+      refillHistogram.incrementAndGet(bucket(nanos));
+      charsRead.add(end - start);
+      int lines = 0;
+      for (int i = start; i < end; i++)
+        if (chars[i] == '\n')
+          lines++;
+      linesRead.add(lines);
+    } // end refilled
+
+    // A write of n bytes that took nanos
+    void wrote(int n, long nanos) {
+      writes.increment();
+      writeNanos.add(nanos);
+      writeHistogram.incrementAndGet(bucket(nanos));
+      bytesWritten.add(n);
+    } // end wrote
+
+    private static int bucket(long nanos) {
+      return 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1));
+    } // end bucket
+
+    private static long[] toArray(AtomicLongArray histogram) {
+      long[] counts = new long[histogram.length()];
+      for (int i = 0; i < counts.length; i++)
+        counts[i] = histogram.get(i);
+      return counts;
+    } // end toArray
+
+    public String getFileName() {
+      return file.fileName;
+    } // end getFileName
+
+    public long getCharsRead() {
+      return charsRead.sum();
+    } // end getCharsRead
+
+    public long getBytesRead() {
+      return file.bytesRead();
+    } // end getBytesRead
+
+    public long getLinesRead() {
+      return linesRead.sum();
+    } // end getLinesRead
+
+    public long getRefills() {
+      return refills.sum();
+    } // end getRefills
+
+    public long getRefillNanos() {
+      return refillNanos.sum();
+    } // end getRefillNanos
+
+    public long[] getRefillHistogram() {
+      return toArray(refillHistogram);
+    } // end getRefillHistogram
+
+    public long getCharsWritten() {
+      return charsWritten.sum();
+    } // end getCharsWritten
+
+    public long getBytesWritten() {
+      return bytesWritten.sum();
+    } // end getBytesWritten
+
+    public long getLinesWritten() {
+      return linesWritten.sum();
+    } // end getLinesWritten
+
+    public long getWrites() {
+      return writes.sum();
+    } // end getWrites
+
+    public long getWriteNanos() {
+      return writeNanos.sum();
+    } // end getWriteNanos
+
+    public long[] getWriteHistogram() {
+      return toArray(writeHistogram);
+    } // end getWriteHistogram
+
+    public long getFlushes() {
+      return flushes.sum();
+    } // end getFlushes
+
+    public double getAverageLineLength() {
+      long lines = linesRead.sum() + linesWritten.sum();
+      if (lines == 0)
+        return 0;
+      return (double) (charsRead.sum() + charsWritten.sum()) / lines;
+    } // end getAverageLineLength
+  } // end class Stats
+
+  /***************************************************************************
+   * Flight Recorder events.  These cost next to nothing unless a recording
+   * has them turned on.  They're only made at all once Flight Recorder is
+   * running (see recording).
+   **************************************************************************/
+
+  // True if Flight Recorder has been started (by -XX:StartFlightRecording,
+  // jcmd or JDK Mission Control).  Until then no events are made, because
+  // making the first one would start up Flight Recorder's own machinery,
+  // which takes longer than many whole runs of a small program.
+  private static boolean recording() {
+    return FlightRecorder.isInitialized();
+  } // end recording
+
+  @Name("TextFile.Refill")
+  @Label("TextFile Refill")
+  @Category("TextFile")
+  static class RefillEvent extends Event {
+    @Label("File")
+    String fileName;
+
+    @Label("Characters")
+    int chars;
+  } // end class RefillEvent
+
+  @Name("TextFile.Flush")
+  @Label("TextFile Flush")
+  @Category("TextFile")
+  static class FlushEvent extends Event {
+    @Label("File")
+    String fileName;
+  } // end class FlushEvent
+
+  @Name("TextFile.Abort")
+  @Label("TextFile Abort")
+  @Category("TextFile")
+  static class AbortEvent extends Event {
+    @Label("Message")
+    String message;
+  } // end class AbortEvent
+
 } // end class TextFile
 
@@ -0,0 +1,536 @@
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how fast TextFile reads and writes, next to plain
+ * BufferedReader/BufferedWriter code doing the same job, so changes to
+ * TextFile can be checked for speed-ups and slow-downs.
+ * <p>
+ * Each benchmark is run a few times to warm up and then a few more times
+ * for real.  For every benchmark the results show the time per operation
+ * (a character, word, line or number), the throughput in MB of file per
+ * second, the bytes allocated per operation (by all of the threads, so
+ * the LetterHistogram benchmarks count what their pool threads allocate)
+ * and the garbage collections it caused.
+ * <p>
+ * The input files are generated the first time, in the folder for
+ * temporary files (the <tt>java.io.tmpdir</tt> property), and kept there
+ * for next time: <tt>bench-text-SIZE.txt</tt> (lines of words),
+ * <tt>bench-ints-SIZE.txt</tt> and <tt>bench-doubles-SIZE.txt</tt>.
+ * <p>
+ * Usage: <tt>java TextFileBenchmark [sizes] [filter] [runs]</tt> <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>sizes</tt> is a comma-separated list like <tt>1M,100M,1G</tt>
+ * (default <tt>1M,100M</tt>); <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>filter</tt> only runs the benchmarks whose names contain it
+ * (default: all); <br>
+ * &nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;&nbsp;
+ * <tt>runs</tt> is how many measured runs of each (default 3, after 2
+ * warm-up runs).
+ *
+ * @version 1.0, October 2026
+ */
+public class TextFileBenchmark {
+  // A benchmark: does its job once and returns how many operations it did
+  private interface Benchmark {
+    long run(String fileName) throws IOException;
+  } // end interface Benchmark
+
+  // Something the benchmarks add their results to, so the JIT can't
+  // throw the work away
+  private static volatile long sink;
+
+  private static final int WARM_UP_RUNS = 2;
+
+  // Where the files go
+  private static final String TEMP_DIR = System.getProperty("java.io.tmpdir");
+
+  private static final String[] WORDS = {
+    "the", "ring", "hobbit", "shire", "frodo", "gandalf", "mordor", "and",
+    "of", "a", "to", "in", "that", "precious", "mountain", "road"
+  };
+
+  private static final com.sun.management.ThreadMXBean threads =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public static void main(String[] args) throws IOException {
+    String[] sizes = (args.length > 0 ? args[0] : "1M,100M").split(",");
+    String filter = args.length > 1 ? args[1] : "";
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    TextFile out = TextFile.SCREEN;
+    printName(out, "benchmark");
+    printHeadings(out);
+    for (String size : sizes) {
+      long bytes = parseSize(size);
+      String text = tempFile("bench-text-" + size + ".txt");
+      String ints = tempFile("bench-ints-" + size + ".txt");
+      String doubles = tempFile("bench-doubles-" + size + ".txt");
+      generate(text, bytes, 0);
+      generate(ints, bytes, 1);
+      generate(doubles, bytes, 2);
+      String output = tempFile("bench-out.txt");
+
+      bench(out, size, filter, runs, "readChar+eof", text,
+        TextFileBenchmark::readChars);
+      bench(out, size, filter, runs, "readChar+eof baseline", text,
+        TextFileBenchmark::readCharsBaseline);
+      bench(out, size, filter, runs, "readWord", text,
+        TextFileBenchmark::readWords);
+      bench(out, size, filter, runs, "readWord baseline", text,
+        TextFileBenchmark::readWordsBaseline);
+      bench(out, size, filter, runs, "nextWordView", text,
+        TextFileBenchmark::readWordViews);
+      bench(out, size, filter, runs, "nextWordView+intern", text,
+        TextFileBenchmark::internWordViews);
+      bench(out, size, filter, runs, "readLine", text,
+        TextFileBenchmark::readLines);
+      bench(out, size, filter, runs, "readLine baseline", text,
+        TextFileBenchmark::readLinesBaseline);
+      bench(out, size, filter, runs, "readInt", ints,
+        TextFileBenchmark::readInts);
+      bench(out, size, filter, runs, "readInt baseline", ints,
+        TextFileBenchmark::readIntsBaseline);
+      bench(out, size, filter, runs, "readDouble", doubles,
+        TextFileBenchmark::readDoubles);
+      bench(out, size, filter, runs, "readDouble baseline", doubles,
+        TextFileBenchmark::readDoublesBaseline);
+
+      // LetterHistogram's kernels, counting bytes (the vector one only
+      // when run with --add-modules jdk.incubator.vector)
+      bench(out, size, filter, runs, "letters scalar kernel", text,
+        name -> countLetters(name, LetterHistogram.SCALAR_KERNEL));
+      bench(out, size, filter, runs, "letters histogram kernel", text,
+        name -> countLetters(name, LetterHistogram.HISTOGRAM_KERNEL));
+      if (LetterHistogram.hasVectorKernel())
+        bench(out, size, filter, runs, "letters vector kernel", text,
+          name -> countLetters(name, LetterHistogram.VECTOR_KERNEL));
+
+      // The output benchmarks write about as much as the input files hold.
+      long count = bytes / 8;
+      bench(out, size, filter, runs, "print(int)", output,
+        name -> printInts(name, count));
+      bench(out, size, filter, runs, "print(int) baseline", output,
+        name -> printIntsBaseline(name, count));
+      bench(out, size, filter, runs, "print(double,w,p)", output,
+        name -> printDoubles(name, count / 2));
+      bench(out, size, filter, runs, "print(double,w,p) baseline", output,
+        name -> printDoublesBaseline(name, count / 2));
+      bench(out, size, filter, runs, "println(String)", output,
+        name -> printLines(name, count / 4));
+      bench(out, size, filter, runs, "println(String) baseline", output,
+        name -> printLinesBaseline(name, count / 4));
+      new File(output).delete();
+    } // end for
+  } // end main
+
+  /* *************************************************************************
+   * Running and reporting
+   * *************************************************************************/
+
+  private static void printHeadings(TextFile out) {
+    out.print("size", 6);
+    out.print("ns/op", 10);
+    out.print("MB/s", 9);
+    out.print("B/op", 9);
+    out.print("GCs", 6);
+    out.println("GC ms", 8);
+  } // end printHeadings
+
+  // Runs a benchmark (if its name matches the filter) and prints a line of
+  // results: the averages over the measured runs.
+  private static void bench(TextFile out, String size, String filter, int runs,
+      String name, String fileName, Benchmark benchmark) throws IOException {
+    if (!name.contains(filter))
+      return;
+    for (int i = 0; i < WARM_UP_RUNS; i++)
+      benchmark.run(fileName);
+    long ops = 0;
+    long nanos = 0;
+    long allocated = 0;
+    long bytes = 0;
+    long gcCount = -gcCount();
+    long gcMillis = -gcMillis();
+    for (int i = 0; i < runs; i++) {
+      HashMap<Long, Long> allocatedBefore = allocatedBytes();
+      long started = System.nanoTime();
+      ops += benchmark.run(fileName);
+      nanos += System.nanoTime() - started;
+      allocated += allocatedSince(allocatedBefore);
+      bytes += new File(fileName).length();
+    } // end for
+    gcCount += gcCount();
+    gcMillis += gcMillis();
+
+    printName(out, name);
+    out.print(size, 6);
+    out.print((double) nanos / ops, 10, 2);
+    out.print(bytes / 1e6 / (nanos / 1e9), 9, 1);
+    out.print((double) allocated / ops, 9, 2);
+    out.print((int) gcCount, 6);
+    out.println((int) gcMillis, 8);
+  } // end bench
+
+  // How many bytes each thread has allocated, by thread id
+  private static HashMap<Long, Long> allocatedBytes() {
+    long[] ids = threads.getAllThreadIds();
+    long[] bytes = threads.getThreadAllocatedBytes(ids);
+    HashMap<Long, Long> allocated = new HashMap<Long, Long>();
+    for (int i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0)
+        allocated.put(ids[i], bytes[i]);
+    } // end for
+    return allocated;
+  } // end allocatedBytes
+
+  // How many bytes all the threads have allocated since allocatedBytes
+  // gave before.  A thread that has started since counts everything it
+  // allocated; one that started and finished in between (which none of
+  // the benchmarks' threads do) isn't counted at all.
+  private static long allocatedSince(HashMap<Long, Long> before) {
+    long total = 0;
+    for (Map.Entry<Long, Long> now : allocatedBytes().entrySet()) {
+      Long then = before.get(now.getKey());
+      total += now.getValue() - (then == null ? 0 : then);
+    } // end for
+    return total;
+  } // end allocatedSince
+
+  // Prints a benchmark name lined up on the left of its column
+  private static void printName(TextFile out, String name) {
+    out.print(name);
+    for (int i = name.length(); i < 28; i++)
+      out.print(' ');
+  } // end printName
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      count += Math.max(gc.getCollectionCount(), 0);
+    return count;
+  } // end gcCount
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      millis += Math.max(gc.getCollectionTime(), 0);
+    return millis;
+  } // end gcMillis
+
+  // The full name of a file in the folder for temporary files
+  private static String tempFile(String name) {
+    return new File(TEMP_DIR, name).getPath();
+  } // end tempFile
+
+  // "1M" is 1,000,000 bytes, "1G" 1,000,000,000 and so on
+  private static long parseSize(String size) {
+    char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+    long scale = unit == 'K' ? 1000L : unit == 'M' ? 1000000L
+      : unit == 'G' ? 1000000000L : 1;
+    String digits = scale == 1 ? size : size.substring(0, size.length() - 1);
+    return Long.parseLong(digits) * scale;
+  } // end parseSize
+
+  // Writes a test file of about the given size, unless it's already there.
+  // kind 0 is lines of words, 1 is lines of ints and 2 lines of doubles.
+  private static void generate(String fileName, long bytes, int kind) {
+    if (new File(fileName).length() >= bytes)
+      return;
+    Random random = new Random(kind);
+    TextFile file = new TextFile(TextFile.OUTPUT, fileName);
+    long written = 0;
+    while (written < bytes) {
+      StringBuilder line = new StringBuilder();
+      int count = 1 + random.nextInt(12);
+      for (int i = 0; i < count; i++) {
+        if (i > 0)
+          line.append(' ');
+        if (kind == 0)
+          line.append(WORDS[random.nextInt(WORDS.length)]);
+        else if (kind == 1)
+          line.append(random.nextInt(2000001) - 1000000);
+        else
+          line.append(random.nextGaussian() * 1000);
+      } // end for
+      file.println(line.toString());
+      written += line.length() + 1;
+    } // end while
+    file.close();
+  } // end generate
+
+  /* *************************************************************************
+   * The input benchmarks
+   * *************************************************************************/
+
+  private static long readChars(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (!in.eof()) {
+      sum += in.readChar();
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end readChars
+
+  private static long readCharsBaseline(String fileName) throws IOException {
+    long ops = 0;
+    long sum = 0;
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      int ch;
+      while ((ch = in.read()) >= 0) {
+        sum += ch;
+        ops++;
+      } // end while
+    } // end try
+    sink += sum;
+    return ops;
+  } // end readCharsBaseline
+
+  private static long readWords(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (true) {
+      in.skipWhiteSpace();
+      if (in.eof())
+        break;
+      sum += in.readWord().length();
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end readWords
+
+  private static long readWordViews(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (true) {
+      in.skipWhiteSpace();
+      if (in.eof())
+        break;
+      sum += in.nextWordView().hashCode();
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end readWordViews
+
+  private static long internWordViews(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (true) {
+      in.skipWhiteSpace();
+      if (in.eof())
+        break;
+      sum += System.identityHashCode(in.nextWordView().intern());
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end internWordViews
+
+  // Splits each line into words by hand, much as readWord does.
+  private static long readWordsBaseline(String fileName) throws IOException {
+    long ops = 0;
+    long sum = 0;
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        int i = 0;
+        int length = line.length();
+        while (i < length) {
+          while (i < length && Character.isWhitespace(line.charAt(i)))
+            i++;
+          int start = i;
+          while (i < length && !Character.isWhitespace(line.charAt(i)))
+            i++;
+          if (i > start) {
+            sum += line.substring(start, i).length();
+            ops++;
+          } // end if
+        } // end while
+      } // end while
+    } // end try
+    sink += sum;
+    return ops;
+  } // end readWordsBaseline
+
+  private static long readLines(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (!in.eof()) {
+      sum += in.readLine().length();
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end readLines
+
+  private static long readLinesBaseline(String fileName) throws IOException {
+    long ops = 0;
+    long sum = 0;
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        sum += line.length();
+        ops++;
+      } // end while
+    } // end try
+    sink += sum;
+    return ops;
+  } // end readLinesBaseline
+
+  private static long readInts(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    long sum = 0;
+    while (true) {
+      in.skipWhiteSpace();
+      if (in.eof())
+        break;
+      sum += in.readInt();
+      ops++;
+    } // end while
+    in.close();
+    sink += sum;
+    return ops;
+  } // end readInts
+
+  private static long readIntsBaseline(String fileName) throws IOException {
+    long ops = 0;
+    long sum = 0;
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        for (String word : line.split(" ")) {
+          sum += Integer.parseInt(word);
+          ops++;
+        } // end for
+      } // end while
+    } // end try
+    sink += sum;
+    return ops;
+  } // end readIntsBaseline
+
+  private static long readDoubles(String fileName) {
+    TextFile in = new TextFile(TextFile.INPUT, fileName);
+    long ops = 0;
+    double sum = 0;
+    while (true) {
+      in.skipWhiteSpace();
+      if (in.eof())
+        break;
+      sum += in.readDouble();
+      ops++;
+    } // end while
+    in.close();
+    sink += (long) sum;
+    return ops;
+  } // end readDoubles
+
+  private static long readDoublesBaseline(String fileName) throws IOException {
+    long ops = 0;
+    double sum = 0;
+    try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        for (String word : line.split(" ")) {
+          sum += Double.parseDouble(word);
+          ops++;
+        } // end for
+      } // end while
+    } // end try
+    sink += (long) sum;
+    return ops;
+  } // end readDoublesBaseline
+
+  private static long countLetters(String fileName, int kernel) {
+    long[] counts = LetterHistogram.count(fileName, 
+      ForkJoinPool.commonPool(), kernel);
+    sink += counts[0];
+    return new File(fileName).length();
+  } // end countLetters
+
+  /* *************************************************************************
+   * The output benchmarks
+   * *************************************************************************/
+
+  private static long printInts(String fileName, long count) {
+    TextFile out = new TextFile(TextFile.OUTPUT, fileName);
+    for (long i = 0; i < count; i++) {
+      out.print((int) (i * 7919));
+      out.print(' ');
+    } // end for
+    out.close();
+    return count;
+  } // end printInts
+
+  private static long printIntsBaseline(String fileName, long count)
+      throws IOException {
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
+      for (long i = 0; i < count; i++) {
+        out.write(Integer.toString((int) (i * 7919)));
+        out.write(' ');
+      } // end for
+    } // end try
+    return count;
+  } // end printIntsBaseline
+
+  private static long printDoubles(String fileName, long count) {
+    TextFile out = new TextFile(TextFile.OUTPUT, fileName);
+    for (long i = 0; i < count; i++)
+      out.print(i * 0.37 - 1000, 12, 3);
+    out.close();
+    return count;
+  } // end printDoubles
+
+  // The same formatting, with one DecimalFormat made up front
+  private static long printDoublesBaseline(String fileName, long count)
+      throws IOException {
+    DecimalFormat format = new DecimalFormat("0.000");
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
+      for (long i = 0; i < count; i++) {
+        String number = format.format(i * 0.37 - 1000);
+        for (int pad = number.length(); pad < 12; pad++)
+          out.write(' ');
+        out.write(number);
+      } // end for
+    } // end try
+    return count;
+  } // end printDoublesBaseline
+
+  private static long printLines(String fileName, long count) {
+    TextFile out = new TextFile(TextFile.OUTPUT, fileName);
+    for (long i = 0; i < count; i++)
+      out.println(WORDS[(int) (i & 15)]);
+    out.close();
+    return count;
+  } // end printLines
+
+  private static long printLinesBaseline(String fileName, long count)
+      throws IOException {
+    try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
+      for (long i = 0; i < count; i++) {
+        out.write(WORDS[(int) (i & 15)]);
+        out.newLine();
+      } // end for
+    } // end try
+    return count;
+  } // end printLinesBaseline
+} // end class TextFileBenchmark
@@ -0,0 +1,542 @@
+import java.io.*;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that TextFile's (and LetterHistogram's) fast ways of doing
+ * things give exactly the same results as the simple ways they replaced.
+ * Each check works through lots of generated cases, and prints "ok" or
+ * the first few cases that came out differently.
+ * <ul>
+ * <li><tt>formatting</tt>: <tt>print(double, width, precision)</tt>,
+ * <tt>print(double, width)</tt> and <tt>print(int, width)</tt> print
+ * exactly the same characters as the <tt>DecimalFormat</tt> and
+ * <tt>padLeft</tt> code TextFile used to have, in a few different
+ * locales.  The numbers include halfway cases, -0.0, tiny ("subnormal")
+ * numbers, NaN, infinity and numbers too big to print without an
+ * exponent.</li>
+ * <li><tt>async</tt>: an <tt>ASYNC_OUTPUT</tt> file with a tiny queue
+ * that's set to <tt>DROP_WHEN_FULL</tt> only ever drops whole lines, even
+ * lines that are printed a piece at a time or are longer than the file's
+ * buffer.  Every line in the file is one that was printed, in order, and
+ * the lines in the file plus <tt>getDroppedCount</tt> add up to the lines
+ * printed.</li>
+ * <li><tt>shared</tt>: when 1, 2, 4 and 8 threads print lines to one
+ * <tt>SHARED_OUTPUT</tt> file at the same time, every line comes out
+ * whole, and each thread's lines come out in the order it printed them.
+ * This check also prints how fast the lines were written (in MB per
+ * second) with each number of threads, next to the same threads printing
+ * to an ordinary <tt>OUTPUT</tt> file, taking turns with a lock.</li>
+ * <li><tt>kernels</tt>: <tt>LetterHistogram</tt>'s kernels all count the
+ * same letters as a simple loop does, in files of random bytes (every
+ * byte value is in every file but the tiniest) of all sorts of lengths,
+ * counting from anywhere in the file to anywhere else.  The vector kernel
+ * is only checked when this is run with <tt>--add-modules
+ * jdk.incubator.vector</tt> (see <tt>LetterVectorKernel</tt>).</li>
+ * </ul>
+ * <p>
+ * Usage: <tt>java TextFileCheck [check] [cases]</tt> runs the named check
+ * (default: all of them), each with about <tt>cases</tt> cases (default
+ * 300000).  If anything came out differently, the program ends with an
+ * error message (and exit status 1) after all of the checks have run.
+ *
+ * @version 1.0, October 2026
+ */
+public class TextFileCheck {
+  // How many differences to print for each check
+  private static final int SHOW_DIFFERENCES = 10;
+
+  // Where the checks write their output files
+  private static final String TEMP_DIR = System.getProperty("java.io.tmpdir");
+
+  private static final TextFile out = TextFile.SCREEN;
+
+  // How many checks had differences
+  private static int failed = 0;
+
+  public static void main(String[] args) throws IOException {
+    String check = args.length > 0 ? args[0] : "";
+    int cases = 300000;
+    try {
+      if (args.length > 1)
+        cases = Integer.parseInt(args[1]);
+    }
+    catch (NumberFormatException e) {
+      TextFile.abort("Usage: java TextFileCheck [check] [cases]");
+    } // end try
+    boolean all = check.isEmpty();
+    if (!all && !check.equals("formatting") && !check.equals("async")
+        && !check.equals("shared") && !check.equals("kernels"))
+      TextFile.abort("Error: there's no check called \"" + check + "\"");
+    if (all || check.equals("formatting"))
+      checkFormatting(cases);
+    if (all || check.equals("async"))
+      checkAsync(cases / 10);
+    if (all || check.equals("shared")) {
+      for (int threads = 1; threads <= 8; threads *= 2)
+        checkShared(cases * 10, threads);
+    } // end if
+    if (all || check.equals("kernels"))
+      checkKernels(cases / 1000);
+    if (failed > 0)
+      TextFile.abort("Error: " + failed + " check(s) found differences");
+  } // end main
+
+  // Prints the result of a check: the number of differences out of how
+  // many cases, and the first few differences
+  private static void report(String name, long cases,
+      ArrayList<String> differences, long differenceCount) {
+    out.print(name + ": " + cases + " cases, ");
+    if (differenceCount == 0) {
+      out.println("ok");
+      return;
+    } // end if
+    failed++;
+    out.println(differenceCount + " different");
+    for (String difference : differences)
+      out.println("  " + difference);
+  } // end report
+
+  /* *************************************************************************
+   * formatting
+   * *************************************************************************/
+
+  private static void checkFormatting(int cases) throws IOException {
+    Locale saved = Locale.getDefault();
+    Locale[] locales = {
+      Locale.US, Locale.GERMANY, Locale.forLanguageTag("hi-IN-u-nu-deva")
+    };
+    try {
+      for (Locale locale : locales) {
+        Locale.setDefault(locale);
+        checkFormatting(cases / locales.length, locale);
+      } // end for
+    }
+    finally {
+      Locale.setDefault(saved);
+    } // end try
+  } // end checkFormatting
+
+  // Prints the cases to a TextFile a line at a time, then reads the lines
+  // back and compares them with the old code's Strings.
+  private static void checkFormatting(int cases, Locale locale)
+      throws IOException {
+    Random random = new Random(12);
+    File file = new File(TEMP_DIR, "textfile-check-formatting.txt");
+    TextFile printed = new TextFile(TextFile.OUTPUT, file.getPath());
+    ArrayList<String> expected = new ArrayList<String>(cases);
+    ArrayList<String> described = new ArrayList<String>(cases);
+    for (int i = 0; i < cases; i++) {
+      int width = random.nextInt(30);
+      if (i % 8 == 7) {
+        int value = randomInt(random);
+        printed.print(value, width);
+        expected.add(oldFormatInt(value, width));
+        described.add("print(" + value + ", " + width + ")");
+      }
+      else {
+        int precision = random.nextInt(24) - 2;
+        double value = randomDouble(random, precision);
+        if (i % 8 == 6) {
+          printed.print(value, width);
+          expected.add(oldFormatDouble(value, width, 6));
+          described.add("print(" + value + ", " + width + ")");
+        }
+        else {
+          printed.print(value, width, precision);
+          expected.add(oldFormatDouble(value, width, precision));
+          described.add("print(" + value + ", " + width + ", " + precision
+            + ")");
+        } // end if
+      } // end if
+      printed.println();
+    } // end for
+    printed.close();
+
+    ArrayList<String> differences = new ArrayList<String>();
+    long differenceCount = 0;
+    TextFile in = new TextFile(TextFile.INPUT, file.getPath());
+    for (int i = 0; i < cases; i++) {
+      String line = in.readLine();
+      if (!line.equals(throughFile(expected.get(i)))) {
+        if (differenceCount++ < SHOW_DIFFERENCES)
+          differences.add(described.get(i) + " printed \"" + line
+            + "\", not \"" + expected.get(i) + "\"");
+      } // end if
+    } // end for
+    in.close();
+    file.delete();
+    report("formatting (" + locale.toLanguageTag() + ")", cases, differences,
+      differenceCount);
+  } // end checkFormatting
+
+  // What a String turns into when it's written to a file and read back in
+  // the default character set: a character the character set doesn't
+  // have (like an infinity sign in ASCII) becomes a '?'
+  private static String throughFile(String s) {
+    return new String(s.getBytes());
+  } // end throughFile
+
+  // A mixture of small, big and extreme ints
+  private static int randomInt(Random random) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return random.nextInt(2001) - 1000;
+      case 1:
+        return random.nextInt();
+      case 2:
+        return random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+      default:
+        return random.nextInt(10) - 5;
+    } // end switch
+  } // end randomInt
+
+  // A mixture of the kinds of double that are hard to round: numbers
+  // exactly or nearly halfway between two results at this precision, every
+  // size of number from subnormal to huge, and the special values
+  private static double randomDouble(Random random, int precision) {
+    double sign = random.nextBoolean() ? -1 : 1;
+    double scale = Math.pow(10, Math.max(precision, 0));
+    switch (random.nextInt(8)) {
+      case 0: // ordinary numbers
+        return sign * random.nextDouble() * Math.pow(10, random.nextInt(12));
+      case 1: // written as halfway between two results
+        return sign * ((random.nextInt(1000000) + 0.5) / scale);
+      case 2: // exactly halfway in binary, like 0.125 or 2.5
+        return sign * ((random.nextInt(1 << 20) * 2 + 1)
+          / (double) (1 << (1 + random.nextInt(20))));
+      case 3: // one ulp either side of halfway
+        double half = (random.nextInt(1000000) + 0.5) / scale;
+        return sign * (random.nextBoolean() ? Math.nextUp(half)
+          : Math.nextDown(half));
+      case 4: // any bit pattern at all: huge, tiny, subnormal, NaN
+        return Double.longBitsToDouble(random.nextLong());
+      case 5: // subnormal
+        return Double.longBitsToDouble(random.nextLong() & 0x800fffffffffffffL);
+      case 6: // near the biggest numbers a long can hold
+        return sign * Math.pow(10, 15 + random.nextInt(6))
+          * (1 + random.nextDouble());
+      default: // the special values
+        double[] special = { 0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY,
+          Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE,
+          Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_NORMAL, 0.5, -0.5,
+          1e-300, 9.5, 99.5, 0.05, 0.005, 1.0 / 3 };
+        return special[random.nextInt(special.length)];
+    } // end switch
+  } // end randomDouble
+
+  /* *************************************************************************
+   * async
+   * *************************************************************************/
+
+  private static void checkAsync(int lines) {
+    File file = new File(TEMP_DIR, "textfile-check-async.txt");
+    TextFile printed = new TextFile(TextFile.ASYNC_OUTPUT, file.getPath(), 8192);
+    printed.setWhenFull(TextFile.DROP_WHEN_FULL);
+    Random random = new Random(13);
+    for (int i = 0; i < lines; i++) {
+      // the line in a few pieces, and now and then a piece bigger than
+      // the file's buffer
+      String line = asyncLine(i);
+      int at = 0;
+      while (at < line.length()) {
+        int end = Math.min(line.length(), at + 1 + random.nextInt(40));
+        printed.print(line.substring(at, end));
+        at = end;
+      } // end while
+      printed.println();
+    } // end for
+    long dropped = printed.getDroppedCount();
+    printed.close();
+
+    ArrayList<String> differences = new ArrayList<String>();
+    long differenceCount = 0;
+    long kept = 0;
+    int last = -1;
+    TextFile in = new TextFile(TextFile.INPUT, file.getPath());
+    while (!in.eof()) {
+      String line = in.readLine();
+      kept++;
+      int space = line.indexOf(' ');
+      int number = -1;
+      try {
+        number = Integer.parseInt(space < 0 ? line : line.substring(0, space));
+      }
+      catch (NumberFormatException e) {
+        // a damaged line: reported below
+      } // end try
+      if (number <= last || number >= lines || !line.equals(asyncLine(number))) {
+        if (differenceCount++ < SHOW_DIFFERENCES)
+          differences.add("line " + kept + " after line number " + last
+            + " is damaged or out of order: \"" + shorten(line) + "\"");
+      }
+      else
+        last = number;
+    } // end while
+    in.close();
+    file.delete();
+    if (kept + dropped != lines) {
+      if (differenceCount++ < SHOW_DIFFERENCES)
+        differences.add(kept + " lines in the file and " + dropped
+          + " dropped, but " + lines + " printed");
+    } // end if
+    report("async (" + dropped + " lines dropped)", lines, differences,
+      differenceCount);
+  } // end checkAsync
+
+  // Line number i for the async check: the number, then some letters.
+  // Every 1000th line is longer than a TextFile's buffer.
+  private static String asyncLine(int i) {
+    int length = i % 1000 == 999 ? 70000 : i % 200;
+    StringBuilder line = new StringBuilder().append(i).append(' ');
+    for (int j = 0; j < length; j++)
+      line.append((char) ('a' + (i + j) % 26));
+    return line.toString();
+  } // end asyncLine
+
+  // The start of a line that might be very long
+  private static String shorten(String line) {
+    return line.length() <= 60 ? line : line.substring(0, 60) + "...";
+  } // end shorten
+
+  /* *************************************************************************
+   * shared
+   * *************************************************************************/
+
+  // The end of each line the shared check prints, so lines are different
+  // lengths (up to 100 characters)
+  private static final String[] PAYLOADS = new String[64];
+  static {
+    for (int i = 0; i < PAYLOADS.length; i++) {
+      StringBuilder payload = new StringBuilder();
+      for (int j = 0; j < i * 3 / 2; j++)
+        payload.append((char) ('a' + (i + j) % 26));
+      PAYLOADS[i] = payload.toString();
+    } // end for
+  }
+
+  // Has the threads print lines lines between them, first to a
+  // SHARED_OUTPUT file (checking that the lines come out whole and in
+  // order) and then, for comparison, to an OUTPUT file with a lock.
+  private static void checkShared(int lines, int threads) {
+    File file = new File(TEMP_DIR, "textfile-check-shared.txt");
+    int each = lines / threads;
+    double shared = timeShared(file, threads, each, false);
+    ArrayList<String> differences = new ArrayList<String>();
+    long differenceCount = 0;
+    int[] next = new int[threads]; // the line we expect next from each thread
+    TextFile in = new TextFile(TextFile.INPUT, file.getPath());
+    long kept = 0;
+    while (!in.eof()) {
+      String line = in.readLine();
+      kept++;
+      String[] words = line.split(" ", 3);
+      boolean whole = false;
+      try {
+        int thread = Integer.parseInt(words[0]);
+        int number = Integer.parseInt(words[1]);
+        whole = thread >= 0 && thread < threads && number == next[thread]
+          && line.equals(sharedLine(thread, number));
+        if (whole)
+          next[thread]++;
+      }
+      catch (RuntimeException e) {
+        // (not a number, or not enough words) a damaged line
+      } // end try
+      if (!whole && differenceCount++ < SHOW_DIFFERENCES)
+        differences.add("line " + kept + " is damaged or out of order: \""
+          + shorten(line) + "\"");
+    } // end while
+    in.close();
+    for (int thread = 0; thread < threads; thread++) {
+      if (next[thread] != each && differenceCount++ < SHOW_DIFFERENCES)
+        differences.add("thread " + thread + " printed " + each
+          + " lines, but " + next[thread] + " came out whole");
+    } // end for
+    double locked = timeShared(file, threads, each, true);
+    file.delete();
+    report("shared (" + threads + (threads == 1 ? " thread, " : " threads, ")
+      + format(shared) + " MB/s; with a lock " + format(locked) + " MB/s)",
+      (long) each * threads, differences, differenceCount);
+  } // end checkShared
+
+  // Starts the threads printing each lines to a new file and waits for them
+  // to finish.  With locked the file is an OUTPUT file that the threads
+  // take turns with; otherwise it's a SHARED_OUTPUT file.  Returns how fast
+  // the file was written, in MB per second.
+  private static double timeShared(File file, int threads, int each,
+      boolean locked) {
+    TextFile printed = locked ? new TextFile(TextFile.OUTPUT, file.getPath())
+      : new TextFile(TextFile.SHARED_OUTPUT, file.getPath());
+    Thread[] printers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      int thread = t;
+      printers[t] = new Thread(() -> {
+        for (int number = 0; number < each; number++) {
+          if (locked) {
+            synchronized (printed) {
+              printSharedLine(printed, thread, number);
+            } // end synchronized
+          }
+          else
+            printSharedLine(printed, thread, number);
+        } // end for
+      });
+    } // end for
+    long started = System.nanoTime();
+    for (Thread printer : printers)
+      printer.start();
+    for (Thread printer : printers) {
+      try {
+        printer.join();
+      }
+      catch (InterruptedException e) {
+        TextFile.abort("Error: interrupted while waiting for the threads");
+      } // end try
+    } // end for
+    printed.close();
+    long nanos = System.nanoTime() - started;
+    return file.length() / 1e6 / (nanos / 1e9);
+  } // end timeShared
+
+  // Prints line number of a thread for the shared check, a piece at a time
+  private static void printSharedLine(TextFile printed, int thread,
+      int number) {
+    printed.print(thread);
+    printed.print(' ');
+    printed.print(number);
+    printed.print(' ');
+    printed.println(PAYLOADS[number % PAYLOADS.length]);
+  } // end printSharedLine
+
+  // What printSharedLine prints
+  private static String sharedLine(int thread, int number) {
+    return thread + " " + number + " " + PAYLOADS[number % PAYLOADS.length];
+  } // end sharedLine
+
+  // A number with one digit after the point
+  private static String format(double value) {
+    return new DecimalFormat("0.0").format(value);
+  } // end format
+
+  /* *************************************************************************
+   * kernels
+   * *************************************************************************/
+
+  // The kernels to check, and their names
+  private static final int[] KERNELS = {
+    LetterHistogram.SCALAR_KERNEL, LetterHistogram.HISTOGRAM_KERNEL,
+    LetterHistogram.VECTOR_KERNEL
+  };
+  private static final String[] KERNEL_NAMES = { "scalar", "histogram", 
+    "vector" };
+
+  // Writes files of random bytes and has each kernel count a few ranges
+  // of each one.  The lengths are mostly around LetterHistogram's 65536
+  // byte blocks, and the first file is big enough to be split into tasks.
+  private static void checkKernels(int files) throws IOException {
+    Random random = new Random(14);
+    File file = new File(TEMP_DIR, "textfile-check-kernels.bin");
+    ArrayList<String> differences = new ArrayList<String>();
+    long differenceCount = 0;
+    long ranges = 0;
+    for (int i = 0; i < Math.max(files, 1); i++) {
+      int length;
+      if (i == 0)
+        length = (32 << 20) + 4099;
+      else if (i % 4 == 1)
+        length = random.nextInt(300);
+      else if (i % 4 == 2)
+        length = 65536 * random.nextInt(4) + random.nextInt(200) - 100;
+      else
+        length = random.nextInt(200000);
+      byte[] bytes = randomBytes(random, Math.max(length, 0));
+      try (OutputStream written = new FileOutputStream(file)) {
+        written.write(bytes);
+      } // end try
+      for (int j = 0; j < 4; j++) {
+        // the whole file, then ranges that start and end anywhere (even
+        // past the end of the file)
+        int start = j == 0 ? 0 : random.nextInt(bytes.length + 1);
+        int end = j == 0 ? bytes.length 
+          : start + random.nextInt(bytes.length - start + 100);
+        long[] expected = countLetters(bytes, start, 
+          Math.min(end, bytes.length));
+        ranges++;
+        for (int k = 0; k < KERNELS.length; k++) {
+          long[] counts = LetterHistogram.count(file.getPath(), start, end,
+            ForkJoinPool.commonPool(), KERNELS[k]);
+          if (!Arrays.equals(counts, expected)
+              && differenceCount++ < SHOW_DIFFERENCES)
+            differences.add(KERNEL_NAMES[k] + " kernel, " + bytes.length 
+              + " byte file, from " + start + " to " + end + ": "
+              + Arrays.toString(counts) + " instead of "
+              + Arrays.toString(expected));
+        } // end for
+      } // end for
+    } // end for
+    file.delete();
+    report("kernels (" + (LetterHistogram.hasVectorKernel() 
+      ? "with the vector kernel" : "without the vector kernel: run with "
+      + "--add-modules jdk.incubator.vector") + ")", ranges, differences,
+      differenceCount);
+  } // end checkKernels
+
+  // Random bytes, starting with all 256 byte values in a random order (or
+  // as many of them as fit)
+  private static byte[] randomBytes(Random random, int length) {
+    byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+    byte[] values = new byte[256];
+    for (int b = 0; b < 256; b++)
+      values[b] = (byte) b;
+    for (int b = 255; b > 0; b--) {
+      int other = random.nextInt(b + 1);
+      byte swap = values[b];
+      values[b] = values[other];
+      values[other] = swap;
+    } // end for
+    System.arraycopy(values, 0, bytes, 0, Math.min(256, length));
+    return bytes;
+  } // end randomBytes
+
+  // The letters in bytes[start] .. bytes[end-1], counted the simple way
+  private static long[] countLetters(byte[] bytes, int start, int end) {
+    long[] counts = new long[26];
+    for (int i = start; i < end; i++) {
+      char ch = (char) (bytes[i] & 0xFF);
+      if (ch >= 'a' && ch <= 'z')
+        counts[ch - 'a']++;
+      else if (ch >= 'A' && ch <= 'Z')
+        counts[ch - 'A']++;
+    } // end for
+    return counts;
+  } // end countLetters
+
+  // How TextFile used to format numbers, before it wrote them straight
+  // into its buffer (copied from version 1.4)
+  private static String oldPadLeft(String str, int width) {
+    String result = str;
+    while (result.length() < width)
+      result = " " + result;
+    return result;
+  } // end oldPadLeft
+
+  private static String oldFormatInt(int value, int width) {
+    return oldPadLeft(Integer.toString(value), width);
+  } // end oldFormatInt
+
+  private static String oldFormatDouble(double value, int width,
+      int precision) {
+    String formatString = "0.";
+    for (int i = 0; i < precision; i++)
+      formatString += "0";
+    DecimalFormat pattern = new DecimalFormat(formatString);
+    String formatted = pattern.format(value);
+    return oldPadLeft(formatted, width);
+  } // end oldFormatDouble
+} // end class TextFileCheck